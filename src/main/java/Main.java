@@ -1,5 +1,7 @@
 /**
- * Main entry point. Test classfication on hastie targets.
+ * Main entry point. Test classfication on hastie targets with and without
+ * kernel approximations and compare SGD learning rate schedules on
+ * friedman (1) regression targets.
  * @author Derek Huang
  */
 
@@ -7,6 +9,12 @@ import java.util.Random;
 import java.util.function.DoubleFunction;
 
 import jlinlearn.DMatrix;
+import jlinlearn.LinearSGD;
+import jlinlearn.features.*;
+import jlinlearn.learning_rates.*;
+import jlinlearn.loss_functions.HingeLoss;
+import jlinlearn.loss_functions.LossFunction;
+import jlinlearn.loss_functions.SquaredErrorLoss;
 import static jlinlearn.Utils.*;
 
 public class Main {
@@ -31,6 +39,95 @@ public class Main {
             }
             System.out.printf("---  %2d\n", (int) data.get_y_train()[i]);
         }
+        compareFeatureMaps(data);
+        compareSchedules();
+    }
+
+    /**
+     * Report validation accuracy of a linear SVM on hastie targets, which are
+     * not linearly separable, with and without RBF kernel approximations.
+     */
+    private static void compareFeatureMaps(DMatrix data) {
+        // own generator, so the results do not depend on other comparisons
+        Random rng = new Random(7);
+        LossFunction loss = new HingeLoss();
+        double gamma = 0.5 / data.n_dims;
+        FeatureMap maps[] = {null,
+            new RandomFourierFeatures(data.n_dims, 500, gamma, rng),
+            new Nystroem(data.get_X_train(), 300, gamma, rng)};
+        System.out.println();
+        for (FeatureMap map : maps) {
+            LinearSGD model = new LinearSGD(loss, 1e-5,
+                new OptimalRate(1e-5, loss), LinearSGD.Adaptive.NONE, 0, 20,
+                new Random(7), map);
+            long start = System.nanoTime();
+            model.fit(data);
+            double ms = (System.nanoTime() - start) / 1e6;
+            // fraction of validation labels predicted correctly
+            double y_hat[] = model.decisionFunction(data.get_X_val());
+            int n_correct = 0;
+            for (int i = 0; i < data.n_val; i++) {
+                if (Math.signum(y_hat[i]) == data.get_y_val()[i]) {
+                    n_correct++;
+                }
+            }
+            System.out.printf("%-74s  val acc = %.4f  time = %8.2f ms\n",
+                (map == null) ? "linear" : map.toString(),
+                (double) n_correct / data.n_val, ms);
+        }
+    }
+
+    /**
+     * Report epochs and wall-clock time needed by different SGD options to
+     * reach a target validation loss on friedman (1) targets. The target is
+     * 0.1% above the validation loss of a long averaged SGD run.
+     */
+    private static void compareSchedules() {
+        // own generator, so the results do not depend on other comparisons
+        Random rng = new Random(7);
+        // friedman (1) problem with unit gaussian noise
+        double X[][] = uniformMatrix(100000, 10, rng);
+        double y[] = regFriedman1Targets(X, 1, rng);
+        DMatrix data = new DMatrix(X, y, rng);
+        LossFunction loss = new SquaredErrorLoss();
+        double alpha = 1e-4;
+        // reference run to determine the target validation loss
+        LinearSGD ref = new LinearSGD(loss, alpha, new ConstantRate(0.01),
+            LinearSGD.Adaptive.NONE, 1, 50, new Random(7));
+        ref.fit(data);
+        double target = 1.001 * ref.validationLoss(data);
+        System.out.printf("\ntarget validation loss: %.4f\n", target);
+        // name, schedule, adaptive steps, and averaging start of each option.
+        // adam needs a decaying step; with a constant one it levels off above
+        // the target on some data sets.
+        String names[] = {"constant", "invscaling", "adagrad", "adam",
+            "averaged constant", "averaged invscaling"};
+        LearningRate rates[] = {new ConstantRate(0.001),
+            new InvScalingRate(0.01), new ConstantRate(0.5),
+            new InvScalingRate(0.5, 0.5), new ConstantRate(0.01),
+            new InvScalingRate(0.05)};
+        LinearSGD.Adaptive adaptives[] = {LinearSGD.Adaptive.NONE,
+            LinearSGD.Adaptive.NONE, LinearSGD.Adaptive.ADAGRAD,
+            LinearSGD.Adaptive.ADAM, LinearSGD.Adaptive.NONE,
+            LinearSGD.Adaptive.NONE};
+        int averages[] = {0, 0, 0, 0, 1, 1};
+        for (int k = 0; k < names.length; k++) {
+            LinearSGD model = new LinearSGD(loss, alpha, rates[k],
+                adaptives[k], averages[k], 50, new Random(7));
+            long start = System.nanoTime();
+            boolean reached = model.fit(data, target);
+            double ms = (System.nanoTime() - start) / 1e6;
+            // runs stopped by max_iter have no time to target
+            if (!reached) {
+                System.out.printf("%-20s  not reached in %2d epochs  " +
+                    "val loss = %.4f\n", names[k], model.get_n_epochs(),
+                    model.validationLoss(data));
+                continue;
+            }
+            System.out.printf("%-20s  epochs = %2d  val loss = %.4f  " +
+                "time = %8.2f ms\n", names[k], model.get_n_epochs(),
+                model.validationLoss(data), ms);
+        }
     }
 
 }
\ No newline at end of file
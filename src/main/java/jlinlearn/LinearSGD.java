@@ -0,0 +1,683 @@
+package jlinlearn;
+
+import java.util.InputMismatchException;
+import java.util.Random;
+
+import jlinlearn.features.FeatureMap;
+import jlinlearn.learning_rates.InvScalingRate;
+import jlinlearn.learning_rates.LearningRate;
+import jlinlearn.learning_rates.OptimalRate;
+import jlinlearn.loss_functions.LossFunction;
+
+/**
+ * Linear model trained with stochastic [sub]gradient descent on the primal
+ * problem, with optional {@code l2} regularization.
+ *
+ * Supports the learning rate schedules in {@code jlinlearn.learning_rates},
+ * AdaGrad and Adam per-coordinate step sizes, and Polyak-Ruppert averaging of
+ * the iterates. Averaging is done lazily, i.e. a step only touches the
+ * coordinates where the current row is nonzero, even with {@code l2}
+ * regularization, which is applied by keeping the weights as a scalar multiple
+ * of an unscaled vector.
+ *
+ * An optional FeatureMap, e.g. random Fourier features, can be used to fit
+ * nonlinear problems. Rows are mapped a block at a time during training and
+ * prediction, so the mapped matrix is never materialized. The coefficients
+ * then have length {@code map.n_components()} instead of n_dims.
+ */
+public class LinearSGD {
+
+    /**
+     * Per-coordinate step size adaptation. {@code NONE} uses the step size
+     * from the learning rate schedule directly; {@code ADAGRAD} and
+     * {@code ADAM} scale it per coordinate. Note that adaptive steps touch
+     * every coordinate when {@code alpha > 0} (or always, for Adam).
+     */
+    public enum Adaptive { NONE, ADAGRAD, ADAM }
+
+    // smoothing term for adaptive steps and adam moment decay rates
+    private static final double EPS = 1e-8;
+    private static final double BETA_1 = 0.9;
+    private static final double BETA_2 = 0.999;
+    // rescale the unscaled weights once the weight scale drops below this
+    private static final double MIN_SCALE = 1e-9;
+    // number of rows mapped at a time when using a feature map
+    private static final int BLOCK_ROWS = 256;
+
+    // loss function, l2 regularization strength, and learning rate schedule
+    public final LossFunction loss;
+    public final double alpha;
+    public final LearningRate rate;
+    // per-coordinate step size adaptation
+    public final Adaptive adaptive;
+    // iteration to start averaging at; averaging is disabled if this is 0
+    public final int average;
+    // maximum number of passes over the training data
+    public final int max_iter;
+    // map applied to rows before the linear model, null for the identity
+    public final FeatureMap map;
+    // random number generator used to shuffle rows each epoch
+    private final Random rng;
+    // buffer for a block of mapped rows
+    private double block[][];
+
+    // fitted coefficients, intercept, number of epochs and iterations run
+    private double coef[];
+    private double intercept;
+    private int n_epochs;
+    private long n_iter;
+
+    // training state. weights are w = scale * v, while the running average is
+    // (v * scale_sum + u) / n_avg, with scale_sum the sum of scales since the
+    // start of averaging or the last rescale. b, b_sum are the intercept and
+    // its running sum.
+    private double v[];
+    private double u[];
+    private double scale;
+    private double scale_sum;
+    private double b;
+    private double b_sum;
+    private long n_avg;
+    // adagrad sum of squared gradients or adam moments. last element is for
+    // the intercept. b1_t, b2_t are the adam bias correction powers.
+    private double acc_1[];
+    private double acc_2[];
+    private double b1_t;
+    private double b2_t;
+
+    /**
+     * Convenience constructor for LinearSGD. Uses {@code alpha = 1e-4} and the
+     * default schedule for the loss without averaging or adaptive steps.
+     *
+     * @param loss Loss function to minimize
+     */
+    public LinearSGD(LossFunction loss) {
+        this(loss, 1e-4);
+    }
+
+    /**
+     * Constructor for LinearSGD using the default schedule for the loss
+     * without averaging or adaptive steps. Like scikit-learn, this is
+     * {@code OptimalRate} for classification losses and
+     * {@code InvScalingRate(0.01)} for regression losses, since the early
+     * optimal steps are too large for regression and diverge.
+     *
+     * @param loss Loss function to minimize
+     * @param alpha l2 regularization strength, must be nonnegative, and
+     *     positive for classification losses.
+     */
+    public LinearSGD(LossFunction loss, double alpha) {
+        this(loss, alpha, defaultRate(loss, alpha));
+    }
+
+    /**
+     * Return the default learning rate schedule for the given loss.
+     */
+    private static LearningRate defaultRate(LossFunction loss, double alpha) {
+        if (loss == null) {
+            throw new NullPointerException("loss is null");
+        }
+        if (loss.isClassification()) {
+            return new OptimalRate(alpha, loss);
+        }
+        return new InvScalingRate(0.01);
+    }
+
+    /**
+     * Constructor for LinearSGD with settable schedule, no averaging or
+     * adaptive steps, and at most 20 epochs.
+     *
+     * @param loss Loss function to minimize
+     * @param alpha l2 regularization strength, must be nonnegative.
+     * @param rate Learning rate schedule
+     */
+    public LinearSGD(LossFunction loss, double alpha, LearningRate rate) {
+        this(loss, alpha, rate, Adaptive.NONE, 0, 20, null);
+    }
+
+    /**
+     * Constructor for LinearSGD with all settable arguments.
+     *
+     * Set rng to null to create a new Random instance internally.
+     *
+     * @param loss Loss function to minimize
+     * @param alpha l2 regularization strength, must be nonnegative.
+     * @param rate Learning rate schedule. With adaptive steps, this gives the
+     *     base step size that is scaled per coordinate.
+     * @param adaptive Per-coordinate step size adaptation
+     * @param average Iteration to start averaging at, where 1 averages all the
+     *     iterates. Set to 0 to disable averaging.
+     * @param max_iter Maximum number of epochs, must be positive.
+     * @param rng java.util.Random instance for reproducibility across calls.
+     */
+    public LinearSGD(LossFunction loss, double alpha, LearningRate rate,
+        Adaptive adaptive, int average, int max_iter, Random rng) {
+        this(loss, alpha, rate, adaptive, average, max_iter, rng, null);
+    }
+
+    /**
+     * Constructor for LinearSGD with all settable arguments and a feature map.
+     *
+     * Set rng to null to create a new Random instance internally, and set map
+     * to null to fit the model on the rows directly.
+     *
+     * @param loss Loss function to minimize
+     * @param alpha l2 regularization strength, must be nonnegative.
+     * @param rate Learning rate schedule. With adaptive steps, this gives the
+     *     base step size that is scaled per coordinate.
+     * @param adaptive Per-coordinate step size adaptation
+     * @param average Iteration to start averaging at, where 1 averages all the
+     *     iterates. Set to 0 to disable averaging.
+     * @param max_iter Maximum number of epochs, must be positive.
+     * @param rng java.util.Random instance for reproducibility across calls.
+     * @param map Map applied to each row before the linear model
+     */
+    public LinearSGD(LossFunction loss, double alpha, LearningRate rate,
+        Adaptive adaptive, int average, int max_iter, Random rng,
+        FeatureMap map) {
+        // error checking
+        if (loss == null) {
+            throw new NullPointerException("loss is null");
+        }
+        if (rate == null) {
+            throw new NullPointerException("rate is null");
+        }
+        if (adaptive == null) {
+            throw new NullPointerException("adaptive is null");
+        }
+        if (alpha < 0) {
+            throw new InputMismatchException("alpha must be nonnegative");
+        }
+        if (average < 0) {
+            throw new InputMismatchException("average must be nonnegative");
+        }
+        if (max_iter <= 0) {
+            throw new InputMismatchException("max_iter must be positive");
+        }
+        // if rng == null, then instantiate a new Random instance
+        if (rng == null) {
+            rng = new Random();
+        }
+        this.loss = loss;
+        this.alpha = alpha;
+        this.rate = rate;
+        this.adaptive = adaptive;
+        this.average = average;
+        this.max_iter = max_iter;
+        this.rng = rng;
+        this.map = map;
+    }
+
+    /**
+     * Fit the model on the training split of a DMatrix for max_iter epochs.
+     *
+     * @param data DMatrix to train on
+     * @throws ArithmeticException If the weights diverge.
+     */
+    public void fit(DMatrix data) {
+        fit(data, Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Fit the model on the training split of a DMatrix, stopping early after
+     * the first epoch where the mean loss on the validation split is at most
+     * {@code target_loss}, or after max_iter epochs.
+     *
+     * @param data DMatrix to train on
+     * @param target_loss Validation loss to stop at
+     * @return true if the validation loss reached target_loss, false if
+     *     training ran for max_iter epochs without reaching it.
+     * @throws ArithmeticException If the weights diverge, which usually means
+     *     the learning rate is too large.
+     */
+    public boolean fit(DMatrix data, double target_loss) {
+        if (data == null) {
+            throw new NullPointerException("data is null");
+        }
+        double X[][] = data.get_X_train();
+        double y[] = data.get_y_train();
+        // reset training state
+        reset(n_features(data.n_dims));
+        // row order for the current epoch
+        int ixs[] = new int[data.n_train];
+        for (int i = 0; i < data.n_train; i++) {
+            ixs[i] = i;
+        }
+        for (int e = 1; e <= max_iter; e++) {
+            // fisher-yates shuffle of the row order
+            for (int i = data.n_train - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                int temp = ixs[i];
+                ixs[i] = ixs[j];
+                ixs[j] = temp;
+            }
+            stepRows(X, y, ixs, 0, data.n_train);
+            n_epochs = e;
+            checkFinite();
+            // only compute the coefficients every epoch if we need them
+            if (target_loss != Double.NEGATIVE_INFINITY) {
+                updateCoef();
+                if (validationLoss(data) <= target_loss) {
+                    return true;
+                }
+            }
+        }
+        updateCoef();
+        return false;
+    }
+
+    /**
+     * Take one step on each row of X, in order, continuing from the current
+     * training state. Unlike fit, this does not shuffle the rows or count
+     * epochs, and the state is only reset on the first call or if the number
+     * of features changes.
+     *
+     * @param X Input matrix, dimension (n_rows, n_dims), n_rows > 0
+     * @param y Output vector, dimension (n_rows,)
+     * @throws ArithmeticException If the weights diverge.
+     */
+    public void partialFit(final double X[][], final double y[]) {
+        if ((X == null) || (y == null)) {
+            throw new NullPointerException("X or y is null");
+        }
+        if (X.length != y.length) {
+            throw new InputMismatchException("X and y rows must be equal");
+        }
+        if (X.length == 0) {
+            throw new InputMismatchException("X, y must have nonzero length");
+        }
+        int n_features = n_features(X[0].length);
+        for (int i = 1; i < X.length; i++) {
+            if (X[i].length != X[0].length) {
+                throw new InputMismatchException("rows of X must have equal " +
+                    "length");
+            }
+        }
+        if ((v == null) || (v.length != n_features)) {
+            reset(n_features);
+        }
+        stepRows(X, y, null, 0, X.length);
+        checkFinite();
+        updateCoef();
+    }
+
+    /**
+     * Return the number of features seen by the linear model for inputs with
+     * {@code n_dims} features, checking that they match the feature map.
+     */
+    private int n_features(int n_dims) {
+        if (map == null) {
+            return n_dims;
+        }
+        if (n_dims != map.n_dims()) {
+            throw new InputMismatchException("inputs must have map.n_dims() " +
+                "features");
+        }
+        return map.n_components();
+    }
+
+    /**
+     * Return a copy of the current iterate, i.e. the weights without any
+     * averaging, with the intercept as the last element.
+     *
+     * @return Weights and intercept, length n_dims + 1, or
+     *     {@code map.n_components() + 1} with a feature map
+     */
+    public double[] get_weights() {
+        if (v == null) {
+            throw new IllegalStateException("model has not been fit");
+        }
+        double w[] = new double[v.length + 1];
+        for (int j = 0; j < v.length; j++) {
+            w[j] = scale * v[j];
+        }
+        w[v.length] = b;
+        return w;
+    }
+
+    /**
+     * Add {@code delta} to the current iterate. Iterates already included in
+     * the running average keep their old value. Used to apply weight updates
+     * from other workers during distributed training.
+     *
+     * @param delta Change in weights and intercept, the same length as
+     *     get_weights(), i.e. the number of features + 1
+     */
+    public void shiftWeights(final double delta[]) {
+        if (v == null) {
+            throw new IllegalStateException("model has not been fit");
+        }
+        if (delta.length != v.length + 1) {
+            throw new InputMismatchException("delta must have length " +
+                "number of features + 1");
+        }
+        for (int j = 0; j < v.length; j++) {
+            if (delta[j] != 0) {
+                update(j, delta[j] / scale);
+            }
+        }
+        b = b + delta[v.length];
+        updateCoef();
+    }
+
+    /**
+     * Reset the training state for a problem with {@code n_dims} features.
+     */
+    private void reset(int n_dims) {
+        if ((map != null) && (block == null)) {
+            block = new double[BLOCK_ROWS][n_dims];
+        }
+        coef = new double[n_dims];
+        intercept = 0;
+        n_epochs = 0;
+        n_iter = 0;
+        v = new double[n_dims];
+        u = new double[n_dims];
+        scale = 1;
+        scale_sum = 0;
+        b = 0;
+        b_sum = 0;
+        n_avg = 0;
+        acc_1 = null;
+        acc_2 = null;
+        if (adaptive != Adaptive.NONE) {
+            acc_1 = new double[n_dims + 1];
+        }
+        if (adaptive == Adaptive.ADAM) {
+            acc_2 = new double[n_dims + 1];
+        }
+        b1_t = 1;
+        b2_t = 1;
+    }
+
+    /**
+     * Take a step on each of the rows {@code ixs[from], ... ixs[to - 1]}, or
+     * rows {@code from, ... to - 1} if ixs is null, mapping them in blocks if
+     * there is a feature map.
+     */
+    private void stepRows(final double X[][], final double y[],
+        final int ixs[], int from, int to) {
+        for (int start = from; start < to; start += BLOCK_ROWS) {
+            int stop = Math.min(start + BLOCK_ROWS, to);
+            if (map != null) {
+                map.transform(X, ixs, start, stop, block);
+            }
+            for (int i = start; i < stop; i++) {
+                int r = (ixs == null) ? i : ixs[i];
+                step((map == null) ? X[r] : block[i - start], y[r]);
+            }
+        }
+    }
+
+    /**
+     * Take a single stochastic [sub]gradient step on row {@code x}.
+     */
+    private void step(final double x[], double y) {
+        n_iter++;
+        double eta = rate.eta(n_iter);
+        // derivative of the loss with respect to the prediction
+        double g = loss.gradient(y, scale * dot(v, x) + b);
+        if (adaptive == Adaptive.NONE) {
+            // apply l2 shrinkage to the scale instead of every coordinate. if
+            // the step is too large for alpha, the weights are zeroed.
+            if (alpha > 0) {
+                double shrink = 1 - eta * alpha;
+                if (shrink <= 0) {
+                    zero();
+                }
+                else {
+                    scale = scale * shrink;
+                }
+            }
+            // only touch the coordinates where x is nonzero
+            if (g != 0) {
+                double c = -eta * g / scale;
+                for (int j = 0; j < v.length; j++) {
+                    if (x[j] != 0) {
+                        update(j, c * x[j]);
+                    }
+                }
+                b = b - eta * g;
+            }
+            if (scale < MIN_SCALE) {
+                rescale();
+            }
+        }
+        else {
+            if (adaptive == Adaptive.ADAM) {
+                b1_t = b1_t * BETA_1;
+                b2_t = b2_t * BETA_2;
+            }
+            // regularized gradient per coordinate, scaled adaptively
+            for (int j = 0; j < v.length; j++) {
+                double g_j = g * x[j] + alpha * v[j];
+                if ((g_j != 0) || (adaptive == Adaptive.ADAM)) {
+                    update(j, adaptiveStep(j, g_j, eta));
+                }
+            }
+            b = b + adaptiveStep(v.length, g, eta);
+        }
+        // accumulate running averages once averaging has started
+        if ((average > 0) && (n_iter >= average)) {
+            scale_sum = scale_sum + scale;
+            b_sum = b_sum + b;
+            n_avg++;
+        }
+    }
+
+    /**
+     * Add {@code delta} to unscaled weight {@code j}, lazily correcting the
+     * running average so that previous iterates keep their old value.
+     */
+    private void update(int j, double delta) {
+        v[j] = v[j] + delta;
+        u[j] = u[j] - delta * scale_sum;
+    }
+
+    /**
+     * Fold the weight scale into the unscaled weights. The running average is
+     * first moved into u and scale_sum restarted from 0, like scikit-learn's
+     * reset_wscale, since dividing scale_sum by the tiny scale instead would
+     * make v * scale_sum + u a difference of huge numbers.
+     */
+    private void rescale() {
+        for (int j = 0; j < v.length; j++) {
+            u[j] = u[j] + v[j] * scale_sum;
+            v[j] = v[j] * scale;
+        }
+        scale_sum = 0;
+        scale = 1;
+    }
+
+    /**
+     * Set the weights to zero, moving their contribution to the running
+     * average into u so the average is unchanged.
+     */
+    private void zero() {
+        for (int j = 0; j < v.length; j++) {
+            u[j] = u[j] + v[j] * scale_sum;
+            v[j] = 0;
+        }
+        scale_sum = 0;
+        scale = 1;
+    }
+
+    /**
+     * Return the AdaGrad or Adam step for coordinate {@code j}, where index
+     * {@code v.length} is the intercept, given gradient {@code g_j}.
+     */
+    private double adaptiveStep(int j, double g_j, double eta) {
+        if (adaptive == Adaptive.ADAGRAD) {
+            acc_1[j] = acc_1[j] + g_j * g_j;
+            return -eta * g_j / (Math.sqrt(acc_1[j]) + EPS);
+        }
+        acc_1[j] = BETA_1 * acc_1[j] + (1 - BETA_1) * g_j;
+        acc_2[j] = BETA_2 * acc_2[j] + (1 - BETA_2) * g_j * g_j;
+        return -eta * (acc_1[j] / (1 - b1_t)) /
+            (Math.sqrt(acc_2[j] / (1 - b2_t)) + EPS);
+    }
+
+    /**
+     * Throw an ArithmeticException if the weights or intercept are no longer
+     * finite, so that a diverging schedule does not silently give NaNs.
+     */
+    private void checkFinite() {
+        boolean finite = Double.isFinite(scale) && Double.isFinite(b);
+        for (int j = 0; finite && (j < v.length); j++) {
+            finite = Double.isFinite(v[j]);
+        }
+        if (!finite) {
+            throw new ArithmeticException("weights diverged after " + n_iter +
+                " iterations; try a smaller learning rate");
+        }
+    }
+
+    /**
+     * Compute coef and intercept from the current training state.
+     */
+    private void updateCoef() {
+        for (int j = 0; j < v.length; j++) {
+            if (n_avg > 0) {
+                coef[j] = (v[j] * scale_sum + u[j]) / n_avg;
+            }
+            else {
+                coef[j] = scale * v[j];
+            }
+        }
+        if (n_avg > 0) {
+            intercept = b_sum / n_avg;
+        }
+        else {
+            intercept = b;
+        }
+    }
+
+    /**
+     * Dot product of two vectors of the same length.
+     */
+    private static double dot(final double a[], final double x[]) {
+        double res = 0;
+        for (int j = 0; j < a.length; j++) {
+            res = res + a[j] * x[j];
+        }
+        return res;
+    }
+
+    /**
+     * Compute the decision function value, i.e. the raw prediction, for a row.
+     *
+     * @param x Input row, length n_dims
+     * @return Linear prediction {@code coef . x + intercept}, where x is
+     *     first mapped if there is a feature map
+     */
+    public double decisionFunction(final double x[]) {
+        if (coef == null) {
+            throw new IllegalStateException("model has not been fit");
+        }
+        if (n_features(x.length) != coef.length) {
+            throw new InputMismatchException("x must have length n_dims");
+        }
+        if (map != null) {
+            return dot(coef, map.transform(x)) + intercept;
+        }
+        return dot(coef, x) + intercept;
+    }
+
+    /**
+     * Compute the decision function value for each row of a matrix. With a
+     * feature map, rows are mapped a block at a time.
+     *
+     * @param X Input matrix, shape (n_rows, n_dims)
+     * @return Vector of predictions, length n_rows
+     */
+    public double[] decisionFunction(final double X[][]) {
+        double y_hat[] = new double[X.length];
+        if ((map == null) || (X.length == 0)) {
+            for (int i = 0; i < X.length; i++) {
+                y_hat[i] = decisionFunction(X[i]);
+            }
+            return y_hat;
+        }
+        if (coef == null) {
+            throw new IllegalStateException("model has not been fit");
+        }
+        // check every row, since the map reads n_dims elements of each
+        for (int i = 0; i < X.length; i++) {
+            if (n_features(X[i].length) != coef.length) {
+                throw new InputMismatchException("rows of X must have " +
+                    "length n_dims");
+            }
+        }
+        // separate buffer so prediction does not clobber the training buffer
+        double Z[][] = new double[Math.min(BLOCK_ROWS, X.length)][coef.length];
+        for (int start = 0; start < X.length; start += BLOCK_ROWS) {
+            int stop = Math.min(start + BLOCK_ROWS, X.length);
+            map.transform(X, null, start, stop, Z);
+            for (int i = start; i < stop; i++) {
+                y_hat[i] = dot(coef, Z[i - start]) + intercept;
+            }
+        }
+        return y_hat;
+    }
+
+    /**
+     * Compute the mean loss of the model on the given data.
+     *
+     * @param X Input matrix, shape (n_rows, n_dims)
+     * @param y Output vector, shape (n_rows,)
+     * @return Mean value of the loss function over the rows
+     */
+    public double meanLoss(final double X[][], final double y[]) {
+        if (X.length != y.length) {
+            throw new InputMismatchException("X and y rows must be equal");
+        }
+        if (X.length == 0) {
+            throw new InputMismatchException("X, y must have nonzero length");
+        }
+        double y_hat[] = decisionFunction(X);
+        double total = 0;
+        for (int i = 0; i < X.length; i++) {
+            total = total + loss.evaluate(y[i], y_hat[i]);
+        }
+        return total / X.length;
+    }
+
+    /**
+     * Compute the mean loss of the model on the validation split of a DMatrix.
+     *
+     * @param data DMatrix to evaluate on
+     * @return Mean value of the loss function over the validation rows
+     */
+    public double validationLoss(DMatrix data) {
+        return meanLoss(data.get_X_val(), data.get_y_val());
+    }
+
+    /**
+     * toString method for LinearSGD. reports the training options.
+     */
+    public String toString() {
+        return String.format("LinearSGD(loss = %s, alpha = %g, rate = %s, " +
+            "adaptive = %s, average = %d, max_iter = %d, map = %s)",
+            loss.getClass().getSimpleName(), alpha,
+            rate.getClass().getSimpleName(), adaptive, average, max_iter,
+            map);
+    }
+
+    /** Getters **/
+
+    public double[] get_coef() {
+        return coef;
+    }
+
+    public double get_intercept() {
+        return intercept;
+    }
+
+    public int get_n_epochs() {
+        return n_epochs;
+    }
+
+    public long get_n_iter() {
+        return n_iter;
+    }
+}
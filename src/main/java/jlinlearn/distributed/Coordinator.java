@@ -0,0 +1,216 @@
+package jlinlearn.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.InputMismatchException;
+
+/**
+ * Coordinator for data-parallel training with parameter averaging.
+ *
+ * Each round, every Worker sends the change in its local weights since the
+ * last global weights it received. The coordinator averages the changes,
+ * weighted by the number of training rows in each worker's shard, and sends
+ * the change in the global weights back to all workers. When the workers are
+ * done, they report the loss of the global weights on their validation split.
+ */
+public class Coordinator {
+
+    // number of workers and fraction of entries kept in broadcast deltas
+    public final int n_workers;
+    public final double density;
+    // listening channel, its bound address, and the address as a string
+    private final ServerSocketChannel server;
+    private final SocketAddress bound;
+    private final String address;
+
+    // global weights, number of rounds, and mean validation loss
+    private double weights[];
+    private int n_rounds;
+    private double val_loss;
+
+    /**
+     * Constructor for Coordinator. Binds to the given address, which may use
+     * port 0 to pick a free TCP port; see get_address for the bound address.
+     *
+     * @param address host:port or unix:path to listen on
+     * @param n_workers Number of workers to wait for, must be positive.
+     * @param density Fraction of entries to keep in broadcast deltas, in
+     *     (0, 1]. See DeltaCodec.compress.
+     */
+    public Coordinator(String address, int n_workers, double density)
+        throws IOException {
+        if (n_workers <= 0) {
+            throw new InputMismatchException("n_workers must be positive");
+        }
+        if ((density <= 0) || (density > 1)) {
+            throw new InputMismatchException("density must be in (0, 1]");
+        }
+        this.n_workers = n_workers;
+        this.density = density;
+        SocketAddress addr = Sockets.parse(address);
+        if (addr instanceof UnixDomainSocketAddress) {
+            // remove a stale socket file left over from a previous run
+            Files.deleteIfExists(((UnixDomainSocketAddress) addr).getPath());
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        }
+        else {
+            server = ServerSocketChannel.open();
+        }
+        server.bind(addr, n_workers);
+        bound = server.getLocalAddress();
+        this.address = Sockets.format(bound);
+    }
+
+    /**
+     * Accept all workers and run rounds until every worker is done.
+     *
+     * @return Final global weights, with the intercept as the last element
+     */
+    public double[] run() throws IOException {
+        SocketChannel channels[] = new SocketChannel[n_workers];
+        DataInputStream ins[] = new DataInputStream[n_workers];
+        DataOutputStream outs[] = new DataOutputStream[n_workers];
+        try {
+            // number of weights and training rows reported by each worker
+            int n_weights = -1;
+            double n_train[] = new double[n_workers];
+            double n_total = 0;
+            for (int k = 0; k < n_workers; k++) {
+                channels[k] = server.accept();
+                Sockets.configure(channels[k]);
+                ins[k] = Sockets.input(channels[k]);
+                outs[k] = Sockets.output(channels[k]);
+                if (ins[k].readInt() != Sockets.MSG_HELLO) {
+                    throw new IOException("expected hello from worker");
+                }
+                int n = ins[k].readInt();
+                if ((n_weights >= 0) && (n != n_weights)) {
+                    throw new IOException("workers have different n_dims");
+                }
+                n_weights = n;
+                n_train[k] = ins[k].readInt();
+                n_total = n_total + n_train[k];
+            }
+            // exact global weights and the weights the workers have seen. the
+            // difference is sent each round, so compression error is not lost.
+            double exact[] = new double[n_weights];
+            weights = new double[n_weights];
+            n_rounds = 0;
+            while (true) {
+                // all workers must send the same message type each round
+                int type = ins[0].readInt();
+                for (int k = 1; k < n_workers; k++) {
+                    if (ins[k].readInt() != type) {
+                        throw new IOException("workers are out of sync");
+                    }
+                }
+                if (type == Sockets.MSG_RESULT) {
+                    double loss_sum = 0;
+                    double n_val = 0;
+                    for (int k = 0; k < n_workers; k++) {
+                        loss_sum = loss_sum + ins[k].readDouble();
+                        n_val = n_val + ins[k].readInt();
+                    }
+                    val_loss = loss_sum / n_val;
+                    return weights;
+                }
+                if (type != Sockets.MSG_DELTA) {
+                    throw new IOException("unknown message type " + type);
+                }
+                // weighted average of the worker deltas
+                for (int k = 0; k < n_workers; k++) {
+                    double delta[] = DeltaCodec.read(ins[k]);
+                    if (delta.length != n_weights) {
+                        throw new IOException("delta has wrong length");
+                    }
+                    for (int j = 0; j < n_weights; j++) {
+                        exact[j] = exact[j] + n_train[k] / n_total * delta[j];
+                    }
+                }
+                // send the change in global weights to all workers
+                double diff[] = new double[n_weights];
+                for (int j = 0; j < n_weights; j++) {
+                    diff[j] = exact[j] - weights[j];
+                }
+                diff = DeltaCodec.compress(diff, density);
+                for (int j = 0; j < n_weights; j++) {
+                    weights[j] = weights[j] + diff[j];
+                }
+                for (int k = 0; k < n_workers; k++) {
+                    DeltaCodec.write(outs[k], diff);
+                    outs[k].flush();
+                }
+                n_rounds++;
+            }
+        }
+        finally {
+            for (int k = 0; k < n_workers; k++) {
+                if (channels[k] != null) {
+                    channels[k].close();
+                }
+            }
+            close();
+        }
+    }
+
+    /**
+     * Stop listening, removing the socket file for Unix domain sockets.
+     */
+    public void close() throws IOException {
+        if (!server.isOpen()) {
+            return;
+        }
+        server.close();
+        if (bound instanceof UnixDomainSocketAddress) {
+            Files.deleteIfExists(((UnixDomainSocketAddress) bound).getPath());
+        }
+    }
+
+    /** Getters **/
+
+    public String get_address() {
+        return address;
+    }
+
+    public double[] get_weights() {
+        return weights;
+    }
+
+    public int get_n_rounds() {
+        return n_rounds;
+    }
+
+    public double get_val_loss() {
+        return val_loss;
+    }
+
+    /**
+     * Run a coordinator from the command line and print the results.
+     *
+     * Usage: Coordinator address n_workers [density]
+     */
+    public static void main(String args[]) throws IOException {
+        if ((args.length < 2) || (args.length > 3)) {
+            System.err.println("usage: Coordinator address n_workers " +
+                "[density]");
+            System.exit(1);
+        }
+        double density = 1;
+        if (args.length == 3) {
+            density = Double.parseDouble(args[2]);
+        }
+        Coordinator coord = new Coordinator(args[0],
+            Integer.parseInt(args[1]), density);
+        System.out.printf("listening on %s\n", coord.get_address());
+        coord.run();
+        System.out.printf("rounds = %d  val loss = %.6f\n",
+            coord.get_n_rounds(), coord.get_val_loss());
+    }
+}
@@ -0,0 +1,116 @@
+package jlinlearn.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+
+/**
+ * Compression of weight deltas sent between the coordinator and workers.
+ *
+ * Deltas are rounded to single precision and optionally sparsified by keeping
+ * only the largest entries in magnitude. The codec is stateless; senders
+ * instead always send the difference between their exact weights and the
+ * weights the receiver has seen, so any error made by compressing one delta is
+ * sent again as part of the next one.
+ */
+public class DeltaCodec {
+
+    /**
+     * Compress a delta, returning the values the receiver will decode.
+     *
+     * @param delta Vector to compress
+     * @param density Fraction of entries to keep, in (0, 1]. The entries with
+     *     the largest magnitude are kept; with 1, only rounding is done.
+     * @return Compressed copy of delta, with dropped entries set to 0
+     */
+    public static double[] compress(final double delta[], double density) {
+        if ((density <= 0) || (density > 1)) {
+            throw new InputMismatchException("density must be in (0, 1]");
+        }
+        int n = delta.length;
+        // number of entries to keep, at least 1
+        int k = Math.max(1, (int) Math.ceil(density * n));
+        // smallest magnitude that is kept. ties may keep a few more than k.
+        double cutoff = 0;
+        if (k < n) {
+            double mags[] = new double[n];
+            for (int j = 0; j < n; j++) {
+                mags[j] = Math.abs(delta[j]);
+            }
+            Arrays.sort(mags);
+            cutoff = mags[n - k];
+        }
+        double res[] = new double[n];
+        for (int j = 0; j < n; j++) {
+            if (Math.abs(delta[j]) >= cutoff) {
+                res[j] = (float) delta[j];
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Write a compressed delta. Nonzero entries are sent as (index, float)
+     * pairs if that is smaller than sending all entries as floats.
+     *
+     * @param out Output stream to write to
+     * @param delta Compressed delta, as returned by compress
+     */
+    public static void write(DataOutputStream out, final double delta[])
+        throws IOException {
+        int n = delta.length;
+        int nnz = 0;
+        for (int j = 0; j < n; j++) {
+            if (delta[j] != 0) {
+                nnz++;
+            }
+        }
+        out.writeInt(n);
+        // dense format, marked by a negative nonzero count
+        if (2 * nnz >= n) {
+            out.writeInt(-1);
+            for (int j = 0; j < n; j++) {
+                out.writeFloat((float) delta[j]);
+            }
+            return;
+        }
+        out.writeInt(nnz);
+        for (int j = 0; j < n; j++) {
+            if (delta[j] != 0) {
+                out.writeInt(j);
+                out.writeFloat((float) delta[j]);
+            }
+        }
+    }
+
+    /**
+     * Read a delta written by write.
+     *
+     * @param in Input stream to read from
+     * @return Dense delta vector
+     */
+    public static double[] read(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        int nnz = in.readInt();
+        if ((n < 0) || (nnz > n)) {
+            throw new IOException("malformed delta header");
+        }
+        double delta[] = new double[n];
+        if (nnz < 0) {
+            for (int j = 0; j < n; j++) {
+                delta[j] = in.readFloat();
+            }
+            return delta;
+        }
+        for (int i = 0; i < nnz; i++) {
+            int j = in.readInt();
+            if ((j < 0) || (j >= n)) {
+                throw new IOException("delta index out of bounds");
+            }
+            delta[j] = in.readFloat();
+        }
+        return delta;
+    }
+}
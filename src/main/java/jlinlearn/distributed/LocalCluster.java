@@ -0,0 +1,166 @@
+package jlinlearn.distributed;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.InputMismatchException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Launches a local cluster for testing distributed training on one machine.
+ * The coordinator runs in the current JVM, while each worker runs
+ * Worker.main in its own JVM with the same classpath.
+ */
+public class LocalCluster {
+
+    // milliseconds between checks on the workers while the coordinator runs
+    private static final long POLL_MS = 100;
+
+    /**
+     * Run a coordinator and n_workers worker JVMs to completion. Worker k
+     * trains on a synthetic shard generated with seed {@code seed + k}.
+     * Worker stdout is discarded, while stderr goes to that of this JVM.
+     *
+     * @param address host:port or unix:path for the coordinator. Use port 0
+     *     to pick a free TCP port.
+     * @param n_workers Number of worker JVMs to launch, must be positive.
+     * @param seed Base seed for the worker shards
+     * @param n_rows Number of rows in each shard
+     * @param n_dims Number of features
+     * @param n_epochs Number of passes over each shard
+     * @param rounds_per_epoch Number of syncs per epoch
+     * @param density Fraction of entries kept in deltas, in (0, 1].
+     * @return Coordinator after training has finished
+     * @throws IOException If a worker exits with nonzero status, e.g. before
+     *     connecting, or if the coordinator fails.
+     */
+    public static Coordinator run(String address, int n_workers, long seed,
+        int n_rows, int n_dims, int n_epochs, int rounds_per_epoch,
+        double density) throws IOException, InterruptedException {
+        return run(address, n_workers, seed, n_rows, n_dims, n_epochs,
+            rounds_per_epoch, density, false);
+    }
+
+    /**
+     * Implementation of run. If inherit_io is true, the workers also write
+     * their stdout to that of this JVM.
+     */
+    private static Coordinator run(String address, int n_workers, long seed,
+        int n_rows, int n_dims, int n_epochs, int rounds_per_epoch,
+        double density, boolean inherit_io)
+        throws IOException, InterruptedException {
+        if (n_workers <= 0) {
+            throw new InputMismatchException("n_workers must be positive");
+        }
+        Coordinator coord = new Coordinator(address, n_workers, density);
+        // java executable and classpath of the current JVM
+        String java = System.getProperty("java.home") + File.separator +
+            "bin" + File.separator + "java";
+        String classpath = System.getProperty("java.class.path");
+        Process procs[] = new Process[n_workers];
+        try {
+            for (int k = 0; k < n_workers; k++) {
+                ProcessBuilder builder = new ProcessBuilder(java, "-cp",
+                    classpath, Worker.class.getName(), coord.get_address(),
+                    Long.toString(seed + k), Integer.toString(n_rows),
+                    Integer.toString(n_dims), Integer.toString(n_epochs),
+                    Integer.toString(rounds_per_epoch),
+                    Double.toString(density));
+                if (inherit_io) {
+                    builder.inheritIO();
+                }
+                else {
+                    builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+                    builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                }
+                procs[k] = builder.start();
+            }
+            // run the coordinator on its own thread, since it would block
+            // forever waiting for a worker that died before connecting
+            FutureTask<double[]> task = new FutureTask<>(coord::run);
+            Thread thread = new Thread(task, "coordinator");
+            thread.setDaemon(true);
+            thread.start();
+            while (true) {
+                try {
+                    task.get(POLL_MS, TimeUnit.MILLISECONDS);
+                    break;
+                }
+                catch (TimeoutException e) {
+                    checkWorkers(procs);
+                }
+                catch (ExecutionException e) {
+                    // a worker failure is the more useful error to report
+                    checkWorkers(procs);
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("coordinator failed", e.getCause());
+                }
+            }
+            for (int k = 0; k < n_workers; k++) {
+                if (procs[k].waitFor() != 0) {
+                    throw new IOException("worker " + k + " exited with " +
+                        "status " + procs[k].exitValue());
+                }
+            }
+            return coord;
+        }
+        finally {
+            // kill any workers left over after a failure
+            for (int k = 0; k < n_workers; k++) {
+                if (procs[k] != null) {
+                    procs[k].destroyForcibly();
+                }
+            }
+            coord.close();
+        }
+    }
+
+    /**
+     * Throw an IOException if any worker has exited with nonzero status.
+     */
+    private static void checkWorkers(final Process procs[])
+        throws IOException {
+        for (int k = 0; k < procs.length; k++) {
+            if (!procs[k].isAlive() && (procs[k].exitValue() != 0)) {
+                throw new IOException("worker " + k + " exited with status " +
+                    procs[k].exitValue());
+            }
+        }
+    }
+
+    /**
+     * Run a local cluster from the command line and print the results.
+     *
+     * Usage: LocalCluster [n_workers [address [n_rows [density]]]]
+     */
+    public static void main(String args[])
+        throws IOException, InterruptedException {
+        int n_workers = 4;
+        String address = "localhost:0";
+        int n_rows = 100000;
+        double density = 1;
+        if (args.length > 0) {
+            n_workers = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            address = args[1];
+        }
+        if (args.length > 2) {
+            n_rows = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            density = Double.parseDouble(args[3]);
+        }
+        long start = System.nanoTime();
+        Coordinator coord = run(address, n_workers, 7, n_rows, 10, 5, 20,
+            density, true);
+        double ms = (System.nanoTime() - start) / 1e6;
+        System.out.printf("workers = %d  rounds = %d  val loss = %.6f  " +
+            "time = %.2f ms\n", n_workers, coord.get_n_rounds(),
+            coord.get_val_loss(), ms);
+    }
+}
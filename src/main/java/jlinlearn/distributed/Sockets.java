@@ -0,0 +1,85 @@
+package jlinlearn.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.InputMismatchException;
+
+/**
+ * Socket address parsing and stream helpers shared by Coordinator and Worker.
+ *
+ * Addresses are either {@code host:port} for TCP or {@code unix:path} for a
+ * Unix domain socket (requires Java 16+).
+ */
+class Sockets {
+
+    // message types sent by workers to the coordinator
+    static final int MSG_HELLO = 0;
+    static final int MSG_DELTA = 1;
+    static final int MSG_RESULT = 2;
+
+    /**
+     * Parse an address string into a SocketAddress.
+     */
+    static SocketAddress parse(String address) {
+        if (address == null) {
+            throw new NullPointerException("address is null");
+        }
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(address.substring(5));
+        }
+        int sep = address.lastIndexOf(':');
+        if (sep <= 0) {
+            throw new InputMismatchException("address must be host:port or " +
+                "unix:path");
+        }
+        return new InetSocketAddress(address.substring(0, sep),
+            Integer.parseInt(address.substring(sep + 1)));
+    }
+
+    /**
+     * Format a SocketAddress in the form accepted by parse.
+     */
+    static String format(SocketAddress address) {
+        if (address instanceof UnixDomainSocketAddress) {
+            return "unix:" + ((UnixDomainSocketAddress) address).getPath();
+        }
+        InetSocketAddress inet = (InetSocketAddress) address;
+        return inet.getHostString() + ":" + inet.getPort();
+    }
+
+    /**
+     * Disable Nagle's algorithm for TCP channels, since each round sends one
+     * small message and waits for the reply.
+     */
+    static void configure(SocketChannel channel) throws IOException {
+        if (channel.getLocalAddress() instanceof InetSocketAddress) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+    }
+
+    /**
+     * Buffered input stream for a channel. Reads and writes on the channel
+     * must not happen concurrently from different threads.
+     */
+    static DataInputStream input(SocketChannel channel) {
+        return new DataInputStream(new BufferedInputStream(
+            Channels.newInputStream(channel)));
+    }
+
+    /**
+     * Buffered output stream for a channel; flush after each message.
+     */
+    static DataOutputStream output(SocketChannel channel) {
+        return new DataOutputStream(new BufferedOutputStream(
+            Channels.newOutputStream(channel)));
+    }
+}
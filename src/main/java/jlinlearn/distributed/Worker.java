@@ -0,0 +1,284 @@
+package jlinlearn.distributed;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.InputMismatchException;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jlinlearn.DMatrix;
+import jlinlearn.LinearSGD;
+import jlinlearn.learning_rates.ConstantRate;
+import jlinlearn.loss_functions.SquaredErrorLoss;
+import static jlinlearn.Utils.*;
+
+/**
+ * Worker for data-parallel training with parameter averaging. Each worker
+ * owns one shard of the data set and trains a LinearSGD model on it, syncing
+ * with the Coordinator a fixed number of times per epoch.
+ *
+ * Communication overlaps with computation: the delta for a round is sent on a
+ * background thread while the next chunk of rows is trained on, and the
+ * averaged update is applied after that chunk, i.e. with one round of delay.
+ * Only the last round is waited on, so all workers end with the same weights.
+ */
+public class Worker {
+
+    // address of the coordinator
+    public final String address;
+    // local model, shard of the data set, and training schedule
+    public final LinearSGD model;
+    public final DMatrix data;
+    public final int n_epochs;
+    public final int rounds_per_epoch;
+    // fraction of entries to keep in sent deltas
+    public final double density;
+    // random number generator used to shuffle rows each epoch
+    private final Random rng;
+
+    // final global weights and the validation loss on this shard
+    private double weights[];
+    private double val_loss;
+
+    /**
+     * Constructor for Worker.
+     *
+     * Set rng to null to create a new Random instance internally.
+     *
+     * @param address host:port or unix:path of the coordinator
+     * @param model Local model to train. Only the current iterate is synced,
+     *     so any averaging the model does is local to the worker. If the
+     *     model has a feature map, it must be the same on every worker, e.g.
+     *     RandomFourierFeatures built with the same seed.
+     * @param data Shard of the data set owned by this worker
+     * @param n_epochs Number of passes over the shard, must be positive.
+     * @param rounds_per_epoch Number of syncs per epoch, must be positive.
+     *     Must be the same for all workers.
+     * @param density Fraction of entries to keep in sent deltas, in (0, 1].
+     * @param rng java.util.Random instance for reproducibility across calls.
+     */
+    public Worker(String address, LinearSGD model, DMatrix data, int n_epochs,
+        int rounds_per_epoch, double density, Random rng) {
+        if ((address == null) || (model == null) || (data == null)) {
+            throw new NullPointerException("address, model, or data is null");
+        }
+        if (n_epochs <= 0) {
+            throw new InputMismatchException("n_epochs must be positive");
+        }
+        if (rounds_per_epoch <= 0) {
+            throw new InputMismatchException("rounds_per_epoch must be " +
+                "positive");
+        }
+        if ((density <= 0) || (density > 1)) {
+            throw new InputMismatchException("density must be in (0, 1]");
+        }
+        // if rng == null, then instantiate a new Random instance
+        if (rng == null) {
+            rng = new Random();
+        }
+        this.address = address;
+        this.model = model;
+        this.data = data;
+        this.n_epochs = n_epochs;
+        this.rounds_per_epoch = rounds_per_epoch;
+        this.density = density;
+        this.rng = rng;
+    }
+
+    /**
+     * Connect to the coordinator and train.
+     *
+     * @return Final global weights, with the intercept as the last element
+     */
+    public double[] run() throws IOException {
+        SocketAddress addr = Sockets.parse(address);
+        ExecutorService comm = Executors.newSingleThreadExecutor();
+        try (SocketChannel channel = SocketChannel.open(addr)) {
+            Sockets.configure(channel);
+            DataInputStream in = Sockets.input(channel);
+            DataOutputStream out = Sockets.output(channel);
+            // with a feature map, the weights are in the mapped space
+            int n_features = data.n_dims;
+            if (model.map != null) {
+                n_features = model.map.n_components();
+            }
+            int n_weights = n_features + 1;
+            out.writeInt(Sockets.MSG_HELLO);
+            out.writeInt(n_weights);
+            out.writeInt(data.n_train);
+            out.flush();
+            double X[][] = data.get_X_train();
+            double y[] = data.get_y_train();
+            // global weights last received and the delta sent in the pending
+            // round, which is replaced by the average once it arrives
+            double global[] = new double[n_weights];
+            double sent[] = null;
+            Future<double[]> pending = null;
+            // row order and number of rows per round
+            int ixs[] = new int[data.n_train];
+            for (int i = 0; i < data.n_train; i++) {
+                ixs[i] = i;
+            }
+            int chunk = (data.n_train + rounds_per_epoch - 1) /
+                rounds_per_epoch;
+            for (int e = 0; e < n_epochs; e++) {
+                // fisher-yates shuffle of the row order
+                for (int i = data.n_train - 1; i > 0; i--) {
+                    int j = rng.nextInt(i + 1);
+                    int temp = ixs[i];
+                    ixs[i] = ixs[j];
+                    ixs[j] = temp;
+                }
+                for (int r = 0; r < rounds_per_epoch; r++) {
+                    // train on this round's rows; the last rounds of an epoch
+                    // may be empty if the shard is small
+                    int start = Math.min(r * chunk, data.n_train);
+                    int stop = Math.min(start + chunk, data.n_train);
+                    if (stop > start) {
+                        double X_c[][] = new double[stop - start][];
+                        double y_c[] = new double[stop - start];
+                        for (int i = start; i < stop; i++) {
+                            X_c[i - start] = X[ixs[i]];
+                            y_c[i - start] = y[ixs[i]];
+                        }
+                        model.partialFit(X_c, y_c);
+                    }
+                    // apply the previous round's average, then send the
+                    // change in local weights since the global weights
+                    if (pending != null) {
+                        apply(await(pending), sent, global);
+                    }
+                    double w[] = model.get_weights();
+                    double delta[] = new double[n_weights];
+                    for (int j = 0; j < n_weights; j++) {
+                        delta[j] = w[j] - global[j];
+                    }
+                    final double msg[] = DeltaCodec.compress(delta, density);
+                    sent = msg;
+                    pending = comm.submit(() -> {
+                        out.writeInt(Sockets.MSG_DELTA);
+                        DeltaCodec.write(out, msg);
+                        out.flush();
+                        return DeltaCodec.read(in);
+                    });
+                }
+            }
+            apply(await(pending), sent, global);
+            // report the loss of the global weights on the validation split
+            weights = global;
+            double loss_sum = 0;
+            double X_val[][] = data.get_X_val();
+            double y_val[] = data.get_y_val();
+            for (int i = 0; i < data.n_val; i++) {
+                double x[] = X_val[i];
+                if (model.map != null) {
+                    x = model.map.transform(x);
+                }
+                double y_hat = global[n_features];
+                for (int j = 0; j < n_features; j++) {
+                    y_hat = y_hat + global[j] * x[j];
+                }
+                loss_sum = loss_sum + model.loss.evaluate(y_val[i], y_hat);
+            }
+            val_loss = loss_sum / data.n_val;
+            out.writeInt(Sockets.MSG_RESULT);
+            out.writeDouble(loss_sum);
+            out.writeInt(data.n_val);
+            out.flush();
+            return weights;
+        }
+        finally {
+            comm.shutdownNow();
+        }
+    }
+
+    /**
+     * Replace the delta this worker sent with the averaged update, so that
+     * the local weights become the new global weights plus any progress made
+     * since the delta was sent. Updates global in place.
+     */
+    private void apply(final double update[], final double sent[],
+        double global[]) {
+        if (update.length != global.length) {
+            throw new InputMismatchException("update has wrong length");
+        }
+        double shift[] = new double[global.length];
+        for (int j = 0; j < global.length; j++) {
+            shift[j] = update[j] - sent[j];
+            global[j] = global[j] + update[j];
+        }
+        model.shiftWeights(shift);
+    }
+
+    /**
+     * Wait for a pending round, rethrowing IOExceptions from the background
+     * thread.
+     */
+    private static double[] await(Future<double[]> pending)
+        throws IOException {
+        try {
+            return pending.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while syncing", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("sync failed", e.getCause());
+        }
+    }
+
+    /** Getters **/
+
+    public double[] get_weights() {
+        return weights;
+    }
+
+    public double get_val_loss() {
+        return val_loss;
+    }
+
+    /**
+     * Run a worker from the command line on a synthetic shard of friedman (1)
+     * regression targets with unit gaussian noise, trained with the squared
+     * error loss. Each worker should be given a different seed.
+     *
+     * Usage: Worker address seed n_rows n_dims n_epochs rounds_per_epoch
+     *     [density]
+     */
+    public static void main(String args[]) throws IOException {
+        if ((args.length < 6) || (args.length > 7)) {
+            System.err.println("usage: Worker address seed n_rows n_dims " +
+                "n_epochs rounds_per_epoch [density]");
+            System.exit(1);
+        }
+        Random rng = new Random(Long.parseLong(args[1]));
+        int n_rows = Integer.parseInt(args[2]);
+        int n_dims = Integer.parseInt(args[3]);
+        double density = 1;
+        if (args.length == 7) {
+            density = Double.parseDouble(args[6]);
+        }
+        // generate this worker's shard only
+        double X[][] = uniformMatrix(n_rows, n_dims, rng);
+        double y[] = regFriedman1Targets(X, 1, rng);
+        DMatrix data = new DMatrix(X, y, rng);
+        LinearSGD model = new LinearSGD(new SquaredErrorLoss(), 1e-4,
+            new ConstantRate(0.01));
+        Worker worker = new Worker(args[0], model, data,
+            Integer.parseInt(args[4]), Integer.parseInt(args[5]), density,
+            rng);
+        worker.run();
+        System.out.printf("seed %s: shard val loss = %.6f\n", args[1],
+            worker.get_val_loss());
+    }
+}
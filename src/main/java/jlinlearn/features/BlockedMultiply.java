@@ -0,0 +1,82 @@
+package jlinlearn.features;
+
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Cache-tiled, parallel matrix multiplication used by the feature maps.
+ */
+class BlockedMultiply {
+
+    // tile sizes. a (TILE_ROWS, TILE_INNER) tile of A and a
+    // (TILE_COLS, TILE_INNER) tile of B take 96 KiB and fit in L2 cache.
+    static final int TILE_ROWS = 32;
+    static final int TILE_COLS = 64;
+    static final int TILE_INNER = 128;
+    // minimum number of multiply-adds before work is done in parallel
+    static final long PARALLEL_WORK = 1 << 18;
+
+    /**
+     * Compute {@code out[i][k] = sum_j A[r_i][j] * B[k][j]} for rows
+     * {@code r_i = ixs[from + i]} of A, {@code i = 0, ... to - from - 1}, i.e.
+     * the product of a block of rows of A with the transpose of B. If ixs is
+     * null, then {@code r_i = from + i}.
+     *
+     * Storing B transposed keeps both operands contiguous in j. Each (row
+     * tile, column tile) pair of out is computed by one task, so tasks never
+     * write to the same elements.
+     */
+    static void multiply(final double A[][], final int ixs[], int from,
+        int to, final double B[][], double out[][]) {
+        final int n_rows = to - from;
+        final int n_cols = B.length;
+        final int n_inner = B[0].length;
+        final int n_row_tiles = (n_rows + TILE_ROWS - 1) / TILE_ROWS;
+        final int n_col_tiles = (n_cols + TILE_COLS - 1) / TILE_COLS;
+        IntStream tiles = IntStream.range(0, n_row_tiles * n_col_tiles);
+        if ((long) n_rows * n_cols * n_inner >= PARALLEL_WORK) {
+            tiles = tiles.parallel();
+        }
+        tiles.forEach(t -> {
+            int i_0 = (t / n_col_tiles) * TILE_ROWS;
+            int i_1 = Math.min(i_0 + TILE_ROWS, n_rows);
+            int k_0 = (t % n_col_tiles) * TILE_COLS;
+            int k_1 = Math.min(k_0 + TILE_COLS, n_cols);
+            for (int i = i_0; i < i_1; i++) {
+                for (int k = k_0; k < k_1; k++) {
+                    out[i][k] = 0;
+                }
+            }
+            for (int j_0 = 0; j_0 < n_inner; j_0 += TILE_INNER) {
+                int j_1 = Math.min(j_0 + TILE_INNER, n_inner);
+                for (int i = i_0; i < i_1; i++) {
+                    double a[] = A[(ixs == null) ? from + i : ixs[from + i]];
+                    double o[] = out[i];
+                    for (int k = k_0; k < k_1; k++) {
+                        double b[] = B[k];
+                        double s = 0;
+                        for (int j = j_0; j < j_1; j++) {
+                            s = s + a[j] * b[j];
+                        }
+                        o[k] = o[k] + s;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Run {@code body} for each row index in {@code 0, ... n_rows - 1}, in
+     * parallel if {@code n_rows * n_cols} is large enough. Used for the
+     * elementwise part of the feature maps.
+     */
+    static void forEachRow(int n_rows, int n_cols, IntConsumer body) {
+        IntStream rows = IntStream.range(0, n_rows);
+        // elementwise work is cheaper than a multiply-add over n_inner, but
+        // exp and cos are each worth a few dozen flops
+        if ((long) n_rows * n_cols * 32 >= PARALLEL_WORK) {
+            rows = rows.parallel();
+        }
+        rows.forEach(body);
+    }
+}
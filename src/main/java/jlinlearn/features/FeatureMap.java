@@ -0,0 +1,36 @@
+package jlinlearn.features;
+
+/**
+ * Interface for maps from input rows to a new feature space. Rows are mapped
+ * a block at a time, so the mapped matrix never has to be materialized.
+ */
+public interface FeatureMap {
+
+    /**
+     * Return the number of input features.
+     */
+    public int n_dims();
+
+    /**
+     * Return the number of output features.
+     */
+    public int n_components();
+
+    /**
+     * Map rows {@code X[ixs[from]], ... X[ixs[to - 1]]} into rows
+     * {@code 0, ... to - from - 1} of {@code out}, which must have at least
+     * {@code n_components()} columns. If {@code ixs} is null, rows
+     * {@code X[from], ... X[to - 1]} are mapped instead.
+     */
+    public void transform(final double X[][], final int ixs[], int from,
+        int to, double out[][]);
+
+    /**
+     * Map a single row, returning a new array of length n_components.
+     */
+    default public double[] transform(final double x[]) {
+        double out[][] = new double[1][n_components()];
+        transform(new double[][] {x}, null, 0, 1, out);
+        return out[0];
+    }
+}
@@ -0,0 +1,202 @@
+package jlinlearn.features;
+
+import java.util.InputMismatchException;
+import java.util.Random;
+
+import jlinlearn.features.FeatureMap;
+import static jlinlearn.Utils.randomSubset;
+
+/**
+ * Nystroem approximation [1] of the RBF kernel
+ * {@code k(x, y) = exp(-gamma * ||x - y||^2)}. m landmark rows are sampled
+ * from the training data, and each row is mapped to
+ * {@code z(x) = C^(-1) k(x, L)}, where {@code k(x, L)} is the vector of
+ * kernel values between x and the landmarks and {@code K_mm = C C^T} is the
+ * Cholesky factorization of the kernel matrix of the landmarks. Then
+ * {@code z(x) . z(y) = k(x, L)^T K_mm^(-1) k(y, L)}, the same approximation as
+ * when using {@code K_mm^(-1/2)}, which is exact when x and y are landmarks.
+ *
+ * transform reuses a buffer for the kernel values of each block, so it is
+ * synchronized and one instance maps one block at a time, though the
+ * work within each block is still done in parallel.
+ *
+ * [1] C. Williams and M. Seeger, Using the Nystroem method to speed up kernel
+ *     machines, Advances in Neural Information Processing Systems 13, 2001.
+ */
+public class Nystroem implements FeatureMap {
+
+    // added to the diagonal of K_mm, which is singular if landmarks repeat
+    private static final double RIDGE = 1e-8;
+
+    // number of input features, number of landmarks, and kernel width
+    public final int n_dims;
+    public final int n_components;
+    public final double gamma;
+    // landmarks, shape (n_components, n_dims), and their squared norms
+    private final double L[][];
+    private final double L_sq[];
+    // lower triangular normalization C^(-1), shape (n_components, n_components)
+    private final double N[][];
+    // kernel values for the block being mapped, grown to the largest block
+    private double K_block[][];
+
+    /**
+     * Convenience constructor for Nystroem with {@code gamma} set to
+     * {@code 1 / n_dims}, which suits standardized inputs.
+     *
+     * @param X Training matrix to sample landmarks from, shape (n_rows, n_dims)
+     * @param n_components Number of landmarks m, at most n_rows.
+     * @param rng java.util.Random instance for reproducibility across calls.
+     */
+    public Nystroem(final double X[][], int n_components, Random rng) {
+        this(X, n_components, 1.0 / n_dims(X), rng);
+    }
+
+    /**
+     * Constructor for Nystroem.
+     *
+     * Set rng to null to create a new Random instance internally.
+     *
+     * @param X Training matrix to sample landmarks from, shape (n_rows, n_dims)
+     * @param n_components Number of landmarks m, in (0, n_rows].
+     * @param gamma RBF kernel width, must be positive.
+     * @param rng java.util.Random instance for reproducibility across calls.
+     */
+    public Nystroem(final double X[][], int n_components, double gamma,
+        Random rng) {
+        int n_dims = n_dims(X);
+        if ((n_components <= 0) || (n_components > X.length)) {
+            throw new InputMismatchException("n_components must be in " +
+                "(0, n_rows]");
+        }
+        if (gamma <= 0) {
+            throw new InputMismatchException("gamma must be positive");
+        }
+        // if rng == null, then instantiate a new Random instance
+        if (rng == null) {
+            rng = new Random();
+        }
+        this.n_dims = n_dims;
+        this.n_components = n_components;
+        this.gamma = gamma;
+        // copy the sampled landmark rows
+        int ixs[] = randomSubset(rng, X.length, n_components);
+        L = new double[n_components][];
+        L_sq = new double[n_components];
+        for (int k = 0; k < n_components; k++) {
+            L[k] = X[ixs[k]].clone();
+            for (int j = 0; j < n_dims; j++) {
+                L_sq[k] = L_sq[k] + L[k][j] * L[k][j];
+            }
+        }
+        // normalization is the inverse of the cholesky factor of K_mm
+        double K[][] = new double[n_components][n_components];
+        kernel(L, null, 0, n_components, K);
+        N = inverseCholesky(K);
+    }
+
+    /**
+     * Return the number of columns of X, checking that X has positive shape.
+     * Called before the default gamma is computed from it.
+     */
+    private static int n_dims(final double X[][]) {
+        if (X == null) {
+            throw new NullPointerException("X is null");
+        }
+        if ((X.length == 0) || (X[0].length == 0)) {
+            throw new InputMismatchException("X must have positive shape");
+        }
+        return X[0].length;
+    }
+
+    /**
+     * Compute the kernel values between a block of rows of X and the
+     * landmarks, i.e. {@code K[i][k] = k(X[r_i], L[k])}. Rows are selected the
+     * same way as in transform.
+     */
+    private void kernel(final double X[][], final int ixs[], int from, int to,
+        double K[][]) {
+        // ||x - l||^2 = ||x||^2 + ||l||^2 - 2 x . l, with x . l from X L^T
+        BlockedMultiply.multiply(X, ixs, from, to, L, K);
+        BlockedMultiply.forEachRow(to - from, n_components, i -> {
+            double x[] = X[(ixs == null) ? from + i : ixs[from + i]];
+            double x_sq = 0;
+            for (int j = 0; j < n_dims; j++) {
+                x_sq = x_sq + x[j] * x[j];
+            }
+            double k_i[] = K[i];
+            for (int k = 0; k < n_components; k++) {
+                double dist = Math.max(0, x_sq + L_sq[k] - 2 * k_i[k]);
+                k_i[k] = Math.exp(-gamma * dist);
+            }
+        });
+    }
+
+    /**
+     * Compute {@code C^(-1)}, where {@code K + RIDGE * I = C C^T} is the
+     * Cholesky factorization of a symmetric positive semidefinite matrix K.
+     * K is overwritten with C. Pivots that are not positive due to rounding
+     * are clipped to RIDGE.
+     */
+    private static double[][] inverseCholesky(double K[][]) {
+        int n = K.length;
+        // cholesky-banachiewicz, row by row, in place in the lower triangle
+        for (int p = 0; p < n; p++) {
+            for (int q = 0; q <= p; q++) {
+                double s = K[p][q];
+                for (int k = 0; k < q; k++) {
+                    s = s - K[p][k] * K[q][k];
+                }
+                if (p == q) {
+                    K[p][p] = Math.sqrt(Math.max(s + RIDGE, RIDGE));
+                }
+                else {
+                    K[p][q] = s / K[q][q];
+                }
+            }
+        }
+        // forward substitution for the lower triangular inverse, column by
+        // column. N[p][q] is zero for q > p.
+        double N[][] = new double[n][n];
+        for (int q = 0; q < n; q++) {
+            N[q][q] = 1 / K[q][q];
+            for (int p = q + 1; p < n; p++) {
+                double s = 0;
+                for (int k = q; k < p; k++) {
+                    s = s + K[p][k] * N[k][q];
+                }
+                N[p][q] = -s / K[p][p];
+            }
+        }
+        return N;
+    }
+
+    @Override
+    public int n_dims() {
+        return n_dims;
+    }
+
+    @Override
+    public int n_components() {
+        return n_components;
+    }
+
+    @Override
+    public synchronized void transform(final double X[][], final int ixs[],
+        int from, int to, double out[][]) {
+        if ((K_block == null) || (K_block.length < to - from)) {
+            K_block = new double[to - from][n_components];
+        }
+        // kernel values for the block, then out = K N^T
+        kernel(X, ixs, from, to, K_block);
+        BlockedMultiply.multiply(K_block, null, 0, to - from, N, out);
+    }
+
+    /**
+     * toString method for Nystroem.
+     */
+    public String toString() {
+        return String.format("Nystroem(n_dims = %d, n_components = %d, " +
+            "gamma = %g)", n_dims, n_components, gamma);
+    }
+}
@@ -0,0 +1,111 @@
+package jlinlearn.features;
+
+import java.util.InputMismatchException;
+import java.util.Random;
+
+import jlinlearn.features.FeatureMap;
+
+/**
+ * Random Fourier features [1] approximating the RBF kernel
+ * {@code k(x, y) = exp(-gamma * ||x - y||^2)}. Each row is mapped to
+ * {@code z(x) = sqrt(2 / D) * cos(W x + b)}, where the D rows of W are i.i.d.
+ * Gaussian with variance {@code 2 * gamma} and b is uniform over
+ * {@code [0, 2 * pi]}, so that {@code z(x) . z(y)} approximates
+ * {@code k(x, y)}.
+ *
+ * [1] A. Rahimi and B. Recht, Random features for large-scale kernel
+ *     machines, Advances in Neural Information Processing Systems 20, 2007.
+ */
+public class RandomFourierFeatures implements FeatureMap {
+
+    // number of input features, number of components, and kernel width
+    public final int n_dims;
+    public final int n_components;
+    public final double gamma;
+    // random projection, shape (n_components, n_dims), and offsets
+    private final double W[][];
+    private final double b[];
+
+    /**
+     * Convenience constructor for RandomFourierFeatures with {@code gamma} set
+     * to {@code 1 / n_dims}, which suits standardized inputs.
+     *
+     * @param n_dims Number of input features
+     * @param n_components Number of output features D
+     * @param rng java.util.Random instance for reproducibility across calls.
+     */
+    public RandomFourierFeatures(int n_dims, int n_components, Random rng) {
+        this(n_dims, n_components, 1.0 / n_dims, rng);
+    }
+
+    /**
+     * Constructor for RandomFourierFeatures.
+     *
+     * Set rng to null to create a new Random instance internally.
+     *
+     * @param n_dims Number of input features, must be positive.
+     * @param n_components Number of output features D, must be positive.
+     * @param gamma RBF kernel width, must be positive.
+     * @param rng java.util.Random instance for reproducibility across calls.
+     */
+    public RandomFourierFeatures(int n_dims, int n_components, double gamma,
+        Random rng) {
+        if (n_dims <= 0) {
+            throw new InputMismatchException("n_dims must be positive");
+        }
+        if (n_components <= 0) {
+            throw new InputMismatchException("n_components must be positive");
+        }
+        if (gamma <= 0) {
+            throw new InputMismatchException("gamma must be positive");
+        }
+        // if rng == null, then instantiate a new Random instance
+        if (rng == null) {
+            rng = new Random();
+        }
+        this.n_dims = n_dims;
+        this.n_components = n_components;
+        this.gamma = gamma;
+        W = new double[n_components][n_dims];
+        b = new double[n_components];
+        double sd = Math.sqrt(2 * gamma);
+        for (int k = 0; k < n_components; k++) {
+            for (int j = 0; j < n_dims; j++) {
+                W[k][j] = sd * rng.nextGaussian();
+            }
+            b[k] = 2 * Math.PI * rng.nextDouble();
+        }
+    }
+
+    @Override
+    public int n_dims() {
+        return n_dims;
+    }
+
+    @Override
+    public int n_components() {
+        return n_components;
+    }
+
+    @Override
+    public void transform(final double X[][], final int ixs[], int from,
+        int to, double out[][]) {
+        // out = X W^T, then apply the cosine elementwise
+        BlockedMultiply.multiply(X, ixs, from, to, W, out);
+        final double scale = Math.sqrt(2.0 / n_components);
+        BlockedMultiply.forEachRow(to - from, n_components, i -> {
+            double o[] = out[i];
+            for (int k = 0; k < n_components; k++) {
+                o[k] = scale * Math.cos(o[k] + b[k]);
+            }
+        });
+    }
+
+    /**
+     * toString method for RandomFourierFeatures.
+     */
+    public String toString() {
+        return String.format("RandomFourierFeatures(n_dims = %d, " +
+            "n_components = %d, gamma = %g)", n_dims, n_components, gamma);
+    }
+}
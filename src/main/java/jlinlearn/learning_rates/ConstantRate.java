@@ -0,0 +1,31 @@
+package jlinlearn.learning_rates;
+
+import java.util.InputMismatchException;
+
+import jlinlearn.learning_rates.LearningRate;
+
+/**
+ * Constant learning rate, i.e. {@code eta = eta0} at every iteration.
+ */
+public class ConstantRate implements LearningRate {
+
+    // initial (and only) step size
+    public final double eta0;
+
+    /**
+     * Constructor for ConstantRate.
+     * 
+     * @param eta0 Step size, must be positive.
+     */
+    public ConstantRate(double eta0) {
+        if (eta0 <= 0) {
+            throw new InputMismatchException("eta0 must be positive");
+        }
+        this.eta0 = eta0;
+    }
+
+    @Override
+    public double eta(long t) {
+        return eta0;
+    }
+}
@@ -0,0 +1,48 @@
+package jlinlearn.learning_rates;
+
+import java.util.InputMismatchException;
+
+import jlinlearn.learning_rates.LearningRate;
+
+/**
+ * Inverse scaling learning rate, {@code eta = eta0 / pow(t, power_t)}. Same as
+ * the scikit-learn {@code "invscaling"} schedule.
+ */
+public class InvScalingRate implements LearningRate {
+
+    // initial step size and exponent of the decay
+    public final double eta0;
+    public final double power_t;
+
+    /**
+     * Constructor for InvScalingRate with the scikit-learn default exponent
+     * {@code power_t = 0.25}.
+     * 
+     * @param eta0 Initial step size, must be positive.
+     */
+    public InvScalingRate(double eta0) {
+        this(eta0, 0.25);
+    }
+
+    /**
+     * Constructor for InvScalingRate.
+     * 
+     * @param eta0 Initial step size, must be positive.
+     * @param power_t Exponent of the decay, must be nonnegative.
+     */
+    public InvScalingRate(double eta0, double power_t) {
+        if (eta0 <= 0) {
+            throw new InputMismatchException("eta0 must be positive");
+        }
+        if (power_t < 0) {
+            throw new InputMismatchException("power_t must be nonnegative");
+        }
+        this.eta0 = eta0;
+        this.power_t = power_t;
+    }
+
+    @Override
+    public double eta(long t) {
+        return eta0 / Math.pow(t, power_t);
+    }
+}
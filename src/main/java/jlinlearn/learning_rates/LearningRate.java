@@ -0,0 +1,12 @@
+package jlinlearn.learning_rates;
+
+/**
+ * Learning rate schedule interface for the stochastic [sub]gradient trainer.
+ */
+public interface LearningRate {
+
+    /**
+     * Return the step size to use at (1-based) iteration {@code t}.
+     */
+    public double eta(long t);
+}
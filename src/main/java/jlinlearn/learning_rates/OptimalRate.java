@@ -0,0 +1,49 @@
+package jlinlearn.learning_rates;
+
+import java.util.InputMismatchException;
+
+import jlinlearn.learning_rates.LearningRate;
+import jlinlearn.loss_functions.LossFunction;
+
+/**
+ * Optimal learning rate for l2-regularized problems,
+ * {@code eta = 1 / (alpha * (t0 + t))}. Same as the scikit-learn
+ * {@code "optimal"} schedule, where {@code t0} is chosen using the heuristic
+ * from Leon Bottou's SGD code [1] so that the first step is not too large.
+ * 
+ * Meant for classification losses; the early steps are usually too large for
+ * the squared error loss, which will then diverge.
+ * 
+ * [1] https://leon.bottou.org/projects/sgd
+ */
+public class OptimalRate implements LearningRate {
+
+    // regularization strength and iteration offset
+    public final double alpha;
+    public final double t0;
+
+    /**
+     * Constructor for OptimalRate.
+     * 
+     * @param alpha l2 regularization strength, must be positive.
+     * @param loss Loss function being minimized, used to pick {@code t0}.
+     */
+    public OptimalRate(double alpha, LossFunction loss) {
+        if (alpha <= 0) {
+            throw new InputMismatchException("alpha must be positive");
+        }
+        if (loss == null) {
+            throw new NullPointerException("loss is null");
+        }
+        this.alpha = alpha;
+        // typical weight size and the largest sensible initial step size
+        double typw = Math.sqrt(1 / Math.sqrt(alpha));
+        double eta_init = typw / Math.max(1, Math.abs(loss.gradient(1, -typw)));
+        t0 = 1 / (eta_init * alpha);
+    }
+
+    @Override
+    public double eta(long t) {
+        return 1 / (alpha * (t0 + t - 1));
+    }
+}
@@ -12,4 +12,18 @@ public class HingeLoss implements LossFunction {
         return Math.max(0, 1 - y * y_hat);
     }
 
+    @Override
+    public double gradient(double y, double y_hat) {
+        // subgradient is -y if the margin is less than 1, else 0
+        if (y * y_hat < 1) {
+            return -y;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean isClassification() {
+        return true;
+    }
+
 }
@@ -19,4 +19,15 @@ public class HuberLoss implements LossFunction {
         // else act like absolute error translated down by 1 / 2
         return abs_delta - 0.5;
     }
-}
\ No newline at end of file
+
+    @Override
+    public double gradient(double y, double y_hat) {
+        // residual of the prediction
+        double delta = y_hat - y;
+        // linear in the quadratic region, else clipped to the sign
+        if (Math.abs(delta) <= 1) {
+            return delta;
+        }
+        return Math.signum(delta);
+    }
+}
\ No newline at end of file
@@ -9,4 +9,18 @@ public interface LossFunction {
      * Evaluate loss function on response {@code y}, predicted {@code y_hat}.
      */
     public double evaluate(double y, double y_hat);
+
+    /**
+     * Evaluate the [sub]derivative of the loss with respect to {@code y_hat}.
+     * Used by the stochastic [sub]gradient descent trainer.
+     */
+    public double gradient(double y, double y_hat);
+
+    /**
+     * Return true if the loss is for classification with labels -1 and +1,
+     * false if it is for regression. Used to pick default learning rates.
+     */
+    default public boolean isClassification() {
+        return false;
+    }
 }
\ No newline at end of file
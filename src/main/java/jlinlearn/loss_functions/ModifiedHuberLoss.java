@@ -15,11 +15,27 @@ public class ModifiedHuberLoss implements LossFunction {
         // compute margin
         double margin = y * y_hat;
         // if (incorrect) margin is not too big, act like squared hinge loss
-        if (margin <= -1) {
+        if (margin >= -1) {
             return Math.pow(Math.max(0, 1 - margin), 2);
         }
         // else act linearly if the margin is incorrect and > 1 in magnitude
         return -4 * margin;
     }
 
+    @Override
+    public double gradient(double y, double y_hat) {
+        double margin = y * y_hat;
+        // derivative of the squared hinge part, zero for margin >= 1
+        if (margin >= -1) {
+            return -2 * y * Math.max(0, 1 - margin);
+        }
+        // derivative of the linear part
+        return -4 * y;
+    }
+
+    @Override
+    public boolean isClassification() {
+        return true;
+    }
+
 }
@@ -3,7 +3,7 @@ package jlinlearn.loss_functions;
 import jlinlearn.loss_functions.LossFunction;
 
 /**
- * Hinge loss function.
+ * Squared error loss function. Regression error function.
  */
 public class SquaredErrorLoss implements LossFunction {
     
@@ -12,4 +12,9 @@ public class SquaredErrorLoss implements LossFunction {
         return Math.pow(y - y_hat, 2);
     }
 
+    @Override
+    public double gradient(double y, double y_hat) {
+        return 2 * (y_hat - y);
+    }
+
 }
\ No newline at end of file
@@ -70,4 +70,40 @@ class Test_DMatrix {
             }
         }
     }
+
+    /**
+     * Test that every row ends up in exactly one of the training and
+     * validation sets when n_train > n_val. Each row is tagged by its index.
+     */
+    @Test
+    void testSplitCoversAllRows() {
+        int n_rows = 10;
+        double X[][] = new double[n_rows][2];
+        double y[] = new double[n_rows];
+        for (int i = 0; i < n_rows; i++) {
+            X[i][0] = i;
+            X[i][1] = 2 * i;
+            y[i] = i;
+        }
+        DMatrix data = new DMatrix(X, y, new Random(7), 0.2);
+        assertEquals(8, data.n_train);
+        assertEquals(2, data.n_val);
+        // number of times each row index is seen
+        int counts[] = new int[n_rows];
+        for (int i = 0; i < data.n_train; i++) {
+            int ci = (int) data.get_y_train()[i];
+            assertEquals(ci, data.get_X_train()[i][0]);
+            assertEquals(2 * ci, data.get_X_train()[i][1]);
+            counts[ci]++;
+        }
+        for (int i = 0; i < data.n_val; i++) {
+            int ci = (int) data.get_y_val()[i];
+            assertEquals(ci, data.get_X_val()[i][0]);
+            assertEquals(2 * ci, data.get_X_val()[i][1]);
+            counts[ci]++;
+        }
+        for (int i = 0; i < n_rows; i++) {
+            assertEquals(1, counts[i]);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+package jlinlearn;
+
+import java.util.Random;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import jlinlearn.DMatrix;
+import jlinlearn.LinearSGD;
+import jlinlearn.learning_rates.*;
+import jlinlearn.loss_functions.*;
+import static jlinlearn.Utils.*;
+
+class Test_LinearSGD {
+
+    // noise-free linear regression problem, shape (500, 5)
+    private static DMatrix data;
+    // true coefficients and intercept of the linear problem
+    private static final double coef[] = {1, -2, 0.5, 0, 3};
+    private static final double intercept = 0.25;
+
+    /**
+     * Initialize {@code data} with a linear problem with sparse inputs, i.e.
+     * about half of the input matrix elements are set to zero. Uses fixed seed.
+     */
+    @BeforeAll
+    static void initData() {
+        Random rng = new Random(7);
+        double X[][] = gaussianMatrix(500, 5, rng);
+        double y[] = new double[X.length];
+        for (int i = 0; i < X.length; i++) {
+            y[i] = intercept;
+            for (int j = 0; j < coef.length; j++) {
+                if (rng.nextDouble() < 0.5) {
+                    X[i][j] = 0;
+                }
+                y[i] = y[i] + coef[j] * X[i][j];
+            }
+        }
+        data = new DMatrix(X, y, rng);
+    }
+
+    /**
+     * Check that averaged SGD with the given options gives the same result,
+     * up to rounding, as naively averaging dense l2-regularized SGD iterates,
+     * where the shrinkage factor is clipped at zero.
+     */
+    private static void checkLazyAveraging(LossFunction loss, LearningRate rate,
+        double alpha, int average, int max_iter) {
+        LinearSGD model = new LinearSGD(loss, alpha, rate,
+            LinearSGD.Adaptive.NONE, average, max_iter, new Random(7));
+        model.fit(data);
+        // naive implementation using the same row order
+        Random rng = new Random(7);
+        double X[][] = data.get_X_train();
+        double y[] = data.get_y_train();
+        double w[] = new double[data.n_dims];
+        double w_sum[] = new double[data.n_dims];
+        double b = 0;
+        double b_sum = 0;
+        long t = 0;
+        long n_avg = 0;
+        int ixs[] = new int[data.n_train];
+        for (int i = 0; i < data.n_train; i++) {
+            ixs[i] = i;
+        }
+        for (int e = 0; e < max_iter; e++) {
+            for (int i = data.n_train - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                int temp = ixs[i];
+                ixs[i] = ixs[j];
+                ixs[j] = temp;
+            }
+            for (int k = 0; k < data.n_train; k++) {
+                double x[] = X[ixs[k]];
+                t++;
+                double eta = rate.eta(t);
+                double y_hat = b;
+                for (int j = 0; j < data.n_dims; j++) {
+                    y_hat = y_hat + w[j] * x[j];
+                }
+                double g = loss.gradient(y[ixs[k]], y_hat);
+                double shrink = Math.max(0, 1 - eta * alpha);
+                for (int j = 0; j < data.n_dims; j++) {
+                    w[j] = shrink * w[j] - eta * g * x[j];
+                }
+                b = b - eta * g;
+                if (t >= average) {
+                    for (int j = 0; j < data.n_dims; j++) {
+                        w_sum[j] = w_sum[j] + w[j];
+                    }
+                    b_sum = b_sum + b;
+                    n_avg++;
+                }
+            }
+        }
+        for (int j = 0; j < data.n_dims; j++) {
+            assertEquals(w_sum[j] / n_avg, model.get_coef()[j], 1e-7);
+        }
+        assertEquals(b_sum / n_avg, model.get_intercept(), 1e-7);
+    }
+
+    /**
+     * Check lazy averaging against the naive implementation.
+     */
+    @Test
+    void testLazyAveraging() {
+        // weight scale stays well above the point where it is folded back in
+        checkLazyAveraging(new SquaredErrorLoss(), new InvScalingRate(0.05),
+            0.01, 100, 3);
+        // scale shrinks by 0.99 per step, so it is folded back into the
+        // weights about every 2000 steps, i.e. several times over 8000 steps
+        checkLazyAveraging(new SquaredErrorLoss(), new ConstantRate(0.02),
+            0.5, 1, 20);
+        // eta * alpha >= 1 for the first two steps, zeroing the weights, and
+        // the scale then shrinks quickly enough to be folded back in
+        checkLazyAveraging(new HuberLoss(), new InvScalingRate(0.6), 2, 1, 3);
+    }
+
+    /**
+     * Check that each schedule and adaptive option recovers the coefficients.
+     */
+    @Test
+    void testConvergence() {
+        LossFunction loss = new SquaredErrorLoss();
+        LinearSGD models[] = {
+            new LinearSGD(loss, 0, new ConstantRate(0.01),
+                LinearSGD.Adaptive.NONE, 0, 20, new Random(7)),
+            new LinearSGD(loss, 0, new InvScalingRate(0.05),
+                LinearSGD.Adaptive.NONE, 0, 20, new Random(7)),
+            new LinearSGD(loss, 0, new ConstantRate(0.01),
+                LinearSGD.Adaptive.NONE, data.n_train, 20, new Random(7)),
+            new LinearSGD(loss, 0, new ConstantRate(0.5),
+                LinearSGD.Adaptive.ADAGRAD, 0, 20, new Random(7)),
+            new LinearSGD(loss, 0, new ConstantRate(0.01),
+                LinearSGD.Adaptive.ADAM, 0, 20, new Random(7))
+        };
+        for (LinearSGD model : models) {
+            model.fit(data);
+            for (int j = 0; j < coef.length; j++) {
+                assertEquals(coef[j], model.get_coef()[j], 0.05,
+                    model.toString());
+            }
+            assertEquals(intercept, model.get_intercept(), 0.05,
+                model.toString());
+        }
+    }
+
+    /**
+     * Check that the default schedule depends on the type of loss, and that
+     * fitting with the optimal schedule, which diverges for the squared error
+     * loss on friedman (1) targets, throws instead of giving NaNs.
+     */
+    @Test
+    void testDefaultRate() {
+        LossFunction regression[] = {new SquaredErrorLoss(), new HuberLoss()};
+        LossFunction classification[] = {new HingeLoss(),
+            new ModifiedHuberLoss()};
+        for (LossFunction loss : regression) {
+            assertTrue(new LinearSGD(loss).rate instanceof InvScalingRate);
+        }
+        for (LossFunction loss : classification) {
+            assertTrue(new LinearSGD(loss).rate instanceof OptimalRate);
+        }
+        Random rng = new Random(1);
+        double X[][] = uniformMatrix(20000, 10, rng);
+        double y[] = regFriedman1Targets(X, 1, rng);
+        DMatrix friedman = new DMatrix(X, y, rng);
+        LossFunction loss = new SquaredErrorLoss();
+        LinearSGD model = new LinearSGD(loss, 1e-4, new OptimalRate(1e-4, loss),
+            LinearSGD.Adaptive.NONE, 0, 20, new Random(7));
+        assertThrows(ArithmeticException.class, () -> model.fit(friedman));
+    }
+
+    /**
+     * Check that training stops once the target validation loss is reached,
+     * and that fit reports whether it was reached.
+     */
+    @Test
+    void testTargetLoss() {
+        LinearSGD model = new LinearSGD(new SquaredErrorLoss(), 0,
+            new ConstantRate(0.01), LinearSGD.Adaptive.NONE, 1, 100,
+            new Random(7));
+        assertTrue(model.fit(data, 1e-2));
+        assertTrue(model.get_n_epochs() < 100);
+        assertTrue(model.validationLoss(data) <= 1e-2);
+        // losses are nonnegative, so this target is never reached
+        model = new LinearSGD(new SquaredErrorLoss(), 0,
+            new ConstantRate(0.01), LinearSGD.Adaptive.NONE, 1, 3,
+            new Random(7));
+        assertFalse(model.fit(data, -1));
+        assertEquals(3, model.get_n_epochs());
+    }
+
+    /**
+     * Check that partialFit on two chunks of rows gives the same model as one
+     * epoch of fit with the same row order, for each adaptive option.
+     */
+    @Test
+    void testPartialFit() {
+        LossFunction loss = new SquaredErrorLoss();
+        LearningRate rate = new InvScalingRate(0.05);
+        for (LinearSGD.Adaptive adaptive : LinearSGD.Adaptive.values()) {
+            LinearSGD model = new LinearSGD(loss, 0.01, rate, adaptive, 100, 1,
+                new Random(7));
+            model.fit(data);
+            // same shuffle as the first epoch of fit
+            Random rng = new Random(7);
+            int ixs[] = new int[data.n_train];
+            for (int i = 0; i < data.n_train; i++) {
+                ixs[i] = i;
+            }
+            for (int i = data.n_train - 1; i > 0; i--) {
+                int j = rng.nextInt(i + 1);
+                int temp = ixs[i];
+                ixs[i] = ixs[j];
+                ixs[j] = temp;
+            }
+            LinearSGD partial = new LinearSGD(loss, 0.01, rate, adaptive, 100,
+                1, new Random(7));
+            int split = data.n_train / 3;
+            double X[][] = data.get_X_train();
+            double y[] = data.get_y_train();
+            for (int c = 0; c < 2; c++) {
+                int start = (c == 0) ? 0 : split;
+                int stop = (c == 0) ? split : data.n_train;
+                double X_c[][] = new double[stop - start][];
+                double y_c[] = new double[stop - start];
+                for (int i = start; i < stop; i++) {
+                    X_c[i - start] = X[ixs[i]];
+                    y_c[i - start] = y[ixs[i]];
+                }
+                partial.partialFit(X_c, y_c);
+            }
+            assertArrayEquals(model.get_weights(), partial.get_weights(),
+                1e-12, model.toString());
+            assertArrayEquals(model.get_coef(), partial.get_coef(), 1e-12,
+                model.toString());
+            assertEquals(model.get_intercept(), partial.get_intercept(), 1e-12,
+                model.toString());
+            assertEquals(model.get_n_iter(), partial.get_n_iter());
+        }
+    }
+
+    /**
+     * Check that shiftWeights moves the current iterate by delta but leaves
+     * the running average of earlier iterates unchanged. Without averaging,
+     * the coefficients are the iterate and so move as well.
+     */
+    @Test
+    void testShiftWeights() {
+        double delta[] = {0.5, 0, -1, 2, 0, -0.25};
+        for (int average : new int[] {1, 0}) {
+            LinearSGD model = new LinearSGD(new SquaredErrorLoss(), 0.5,
+                new ConstantRate(0.02), LinearSGD.Adaptive.NONE, average, 1,
+                new Random(7));
+            // enough steps for the weight scale to be well below 1
+            model.partialFit(data.get_X_train(), data.get_y_train());
+            double w[] = model.get_weights();
+            double coef[] = model.get_coef().clone();
+            double intercept = model.get_intercept();
+            model.shiftWeights(delta);
+            double w_shift[] = model.get_weights();
+            for (int j = 0; j < w.length; j++) {
+                assertEquals(w[j] + delta[j], w_shift[j], 1e-12);
+            }
+            double coef_shift = (average == 0) ? 1 : 0;
+            for (int j = 0; j < coef.length; j++) {
+                assertEquals(coef[j] + coef_shift * delta[j],
+                    model.get_coef()[j], 1e-12);
+            }
+            assertEquals(intercept + coef_shift * delta[coef.length],
+                model.get_intercept(), 1e-12);
+        }
+    }
+}
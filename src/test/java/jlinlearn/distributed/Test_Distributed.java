@@ -0,0 +1,91 @@
+package jlinlearn.distributed;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import jlinlearn.distributed.Coordinator;
+import jlinlearn.distributed.DeltaCodec;
+import jlinlearn.distributed.LocalCluster;
+
+class Test_Distributed {
+
+    /**
+     * Write a compressed delta to a byte array and read it back.
+     */
+    private static double[] roundTrip(final double delta[], int n_bytes)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeltaCodec.write(new DataOutputStream(bytes), delta);
+        assertEquals(n_bytes, bytes.size());
+        return DeltaCodec.read(new DataInputStream(
+            new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    /**
+     * Test that compression keeps the largest entries and that the dense and
+     * sparse formats both round trip.
+     */
+    @Test
+    void testDeltaCodec() throws IOException {
+        double delta[] = {0.1, -4, 0.3, 2, 0, -0.2, 1e-3, 5};
+        // dense: header plus one float per entry, only rounding is done
+        double dense[] = DeltaCodec.compress(delta, 1);
+        for (int j = 0; j < delta.length; j++) {
+            assertEquals((float) delta[j], dense[j]);
+        }
+        assertArrayEquals(dense, roundTrip(dense, 8 + 4 * delta.length));
+        // sparse: keep the 3 largest entries, sent as (index, float) pairs
+        double sparse[] = DeltaCodec.compress(delta, 0.3);
+        double expected[] = {0, -4, 0, 2, 0, 0, 0, 5};
+        assertArrayEquals(expected, sparse);
+        assertArrayEquals(sparse, roundTrip(sparse, 8 + 8 * 3));
+    }
+
+    /**
+     * Test training with worker JVMs over TCP on localhost. The model fit on
+     * friedman (1) targets with unit noise should be near the best linear fit,
+     * which has a validation loss of about 7.
+     */
+    @Test
+    void testLocalClusterTcp() throws IOException, InterruptedException {
+        Coordinator coord = LocalCluster.run("localhost:0", 3, 7, 5000, 10, 3,
+            10, 1);
+        assertEquals(3 * 10, coord.get_n_rounds());
+        assertTrue(coord.get_val_loss() < 7.5);
+    }
+
+    /**
+     * Test training with worker JVMs over a Unix domain socket with sparse
+     * deltas. The socket file should be removed afterwards.
+     */
+    @Test
+    void testLocalClusterUnix() throws IOException, InterruptedException {
+        File path = File.createTempFile("jlinlearn", ".sock");
+        path.delete();
+        Coordinator coord = LocalCluster.run("unix:" + path.getPath(), 2, 7,
+            5000, 10, 3, 10, 0.5);
+        assertEquals(3 * 10, coord.get_n_rounds());
+        assertTrue(coord.get_val_loss() < 7.5);
+        assertFalse(path.exists());
+    }
+
+    /**
+     * Test that the cluster fails instead of hanging when workers exit before
+     * connecting. Shards of 3 rows are too small to split into training and
+     * validation sets, so every worker fails on startup.
+     */
+    @Test
+    void testLocalClusterWorkerFailure() {
+        IOException e = assertTimeoutPreemptively(Duration.ofSeconds(60),
+            () -> assertThrows(IOException.class, () -> LocalCluster.run(
+                "localhost:0", 2, 7, 3, 10, 1, 1, 1)));
+        assertTrue(e.getMessage().contains("exited with status"));
+    }
+}
\ No newline at end of file
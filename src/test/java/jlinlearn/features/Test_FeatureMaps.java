@@ -0,0 +1,160 @@
+package jlinlearn.features;
+
+import java.util.InputMismatchException;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import jlinlearn.DMatrix;
+import jlinlearn.LinearSGD;
+import jlinlearn.features.*;
+import jlinlearn.learning_rates.OptimalRate;
+import jlinlearn.loss_functions.HingeLoss;
+import jlinlearn.loss_functions.LossFunction;
+import static jlinlearn.Utils.*;
+
+class Test_FeatureMaps {
+
+    /**
+     * RBF kernel value between two rows.
+     */
+    private static double rbf(final double x[], final double y[],
+        double gamma) {
+        double dist = 0;
+        for (int j = 0; j < x.length; j++) {
+            dist = dist + Math.pow(x[j] - y[j], 2);
+        }
+        return Math.exp(-gamma * dist);
+    }
+
+    /**
+     * Largest absolute difference between {@code z(x_i) . z(x_j)} and the RBF
+     * kernel over all pairs of rows of X, mapping all rows as one block.
+     */
+    private static double maxKernelError(FeatureMap map, final double X[][],
+        double gamma) {
+        double Z[][] = new double[X.length][map.n_components()];
+        map.transform(X, null, 0, X.length, Z);
+        double err = 0;
+        for (int i = 0; i < X.length; i++) {
+            for (int k = 0; k < X.length; k++) {
+                double dot = 0;
+                for (int j = 0; j < map.n_components(); j++) {
+                    dot = dot + Z[i][j] * Z[k][j];
+                }
+                err = Math.max(err, Math.abs(dot - rbf(X[i], X[k], gamma)));
+            }
+        }
+        return err;
+    }
+
+    /**
+     * Test the tiled multiply against the naive product, with shuffled row
+     * indices and shapes that do not divide the tile sizes.
+     */
+    @Test
+    void testBlockedMultiply() {
+        Random rng = new Random(7);
+        double A[][] = gaussianMatrix(70, 300, rng);
+        double B[][] = gaussianMatrix(150, 300, rng);
+        int ixs[] = randomSubset(rng, 70, 70);
+        // rows ixs[5], ... ixs[64] of A
+        double out[][] = new double[60][150];
+        BlockedMultiply.multiply(A, ixs, 5, 65, B, out);
+        for (int i = 0; i < 60; i++) {
+            for (int k = 0; k < 150; k++) {
+                double s = 0;
+                for (int j = 0; j < 300; j++) {
+                    s = s + A[ixs[i + 5]][j] * B[k][j];
+                }
+                assertEquals(s, out[i][k], 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Test that random fourier features approximate the RBF kernel and that
+     * mapping a single row matches mapping a block.
+     */
+    @Test
+    void testRandomFourierFeatures() {
+        Random rng = new Random(7);
+        double X[][] = gaussianMatrix(20, 5, rng);
+        FeatureMap map = new RandomFourierFeatures(5, 10000, 0.2, rng);
+        assertTrue(maxKernelError(map, X, 0.2) < 0.05);
+        double Z[][] = new double[20][10000];
+        map.transform(X, null, 0, 20, Z);
+        assertArrayEquals(Z[3], map.transform(X[3]), 1e-12);
+    }
+
+    /**
+     * Test that the nystroem map is exact when every row is a landmark, and
+     * that bad input is rejected by the convenience constructor.
+     */
+    @Test
+    void testNystroem() {
+        Random rng = new Random(7);
+        double X[][] = gaussianMatrix(50, 5, rng);
+        FeatureMap map = new Nystroem(X, 50, 0.2, rng);
+        assertTrue(maxKernelError(map, X, 0.2) < 1e-4);
+        // input is checked before the default gamma is computed
+        assertThrows(NullPointerException.class,
+            () -> new Nystroem(null, 1, rng));
+        assertThrows(InputMismatchException.class,
+            () -> new Nystroem(new double[0][], 1, rng));
+    }
+
+    /**
+     * Test that both maps let a linear SVM fit hastie targets, which are not
+     * linearly separable.
+     */
+    @Test
+    void testHastie() {
+        Random rng = new Random(7);
+        double X[][] = gaussianMatrix(3000, 10, rng);
+        double y[] = clsHastieTargets(X);
+        DMatrix data = new DMatrix(X, y, rng);
+        LossFunction loss = new HingeLoss();
+        FeatureMap maps[] = {null,
+            new RandomFourierFeatures(10, 300, 0.05, rng),
+            new Nystroem(data.get_X_train(), 300, 0.05, rng)};
+        double accs[] = new double[maps.length];
+        for (int m = 0; m < maps.length; m++) {
+            LinearSGD model = new LinearSGD(loss, 1e-5,
+                new OptimalRate(1e-5, loss), LinearSGD.Adaptive.NONE, 0, 10,
+                new Random(7), maps[m]);
+            model.fit(data);
+            double y_hat[] = model.decisionFunction(data.get_X_val());
+            for (int i = 0; i < data.n_val; i++) {
+                if (Math.signum(y_hat[i]) == data.get_y_val()[i]) {
+                    accs[m] = accs[m] + 1.0 / data.n_val;
+                }
+            }
+        }
+        assertTrue(accs[0] < 0.7);
+        assertTrue(accs[1] > 0.85);
+        assertTrue(accs[2] > 0.85);
+    }
+
+    /**
+     * Check that a model with a feature map rejects matrices where any row,
+     * not just the first, has the wrong number of features.
+     */
+    @Test
+    void testRowLengths() {
+        Random rng = new Random(7);
+        double X[][] = gaussianMatrix(10, 4, rng);
+        double y[] = clsHastieTargets(X);
+        LossFunction loss = new HingeLoss();
+        LinearSGD model = new LinearSGD(loss, 1e-5,
+            new OptimalRate(1e-5, loss), LinearSGD.Adaptive.NONE, 0, 1, rng,
+            new RandomFourierFeatures(4, 20, 0.25, rng));
+        model.partialFit(X, y);
+        assertEquals(X.length, model.decisionFunction(X).length);
+        X[9] = new double[3];
+        assertThrows(InputMismatchException.class,
+            () -> model.decisionFunction(X));
+        assertThrows(InputMismatchException.class,
+            () -> model.partialFit(X, y));
+    }
+}
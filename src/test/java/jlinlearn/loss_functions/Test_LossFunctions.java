@@ -0,0 +1,89 @@
+package jlinlearn.loss_functions;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import jlinlearn.loss_functions.*;
+
+class Test_LossFunctions {
+
+    // (y, y_hat) points away from the kinks of all the losses
+    private static final double points[][] = {
+        {1, 0.5}, {1, 2}, {1, -0.5}, {1, -3}, {-1, 0.3}, {-1, -2}, {-1, 3},
+        {0.5, 4}, {2.5, 2.2}
+    };
+
+    /**
+     * Check that gradient matches a central finite difference of evaluate.
+     */
+    private static void checkGradient(LossFunction loss) {
+        double h = 1e-6;
+        for (double p[] : points) {
+            double fd = (loss.evaluate(p[0], p[1] + h) -
+                loss.evaluate(p[0], p[1] - h)) / (2 * h);
+            assertEquals(fd, loss.gradient(p[0], p[1]), 1e-5,
+                loss.getClass().getSimpleName() + " at (" + p[0] + ", " +
+                p[1] + ")");
+        }
+    }
+
+    /**
+     * Test values of the hinge loss and its subgradient.
+     */
+    @Test
+    void testHingeLoss() {
+        LossFunction loss = new HingeLoss();
+        assertEquals(0.5, loss.evaluate(1, 0.5));
+        assertEquals(0, loss.evaluate(1, 2));
+        assertEquals(-1, loss.gradient(1, 0.5));
+        assertEquals(0, loss.gradient(1, 2), 0);
+        assertEquals(1, loss.gradient(-1, 0.3));
+        checkGradient(loss);
+    }
+
+    /**
+     * Test values of the huber loss and its derivative.
+     */
+    @Test
+    void testHuberLoss() {
+        LossFunction loss = new HuberLoss();
+        assertEquals(0.125, loss.evaluate(0, 0.5));
+        assertEquals(2.5, loss.evaluate(0, 3));
+        assertEquals(0.5, loss.gradient(0, 0.5));
+        assertEquals(1, loss.gradient(0, 3));
+        assertEquals(-1, loss.gradient(0, -3));
+        checkGradient(loss);
+    }
+
+    /**
+     * Test values of the modified huber loss, which is quadratic for margins
+     * at least -1 and linear below, and its derivative.
+     */
+    @Test
+    void testModifiedHuberLoss() {
+        LossFunction loss = new ModifiedHuberLoss();
+        assertEquals(0.25, loss.evaluate(1, 0.5));
+        assertEquals(0, loss.evaluate(1, 2));
+        assertEquals(2.25, loss.evaluate(1, -0.5));
+        assertEquals(4, loss.evaluate(1, -1));
+        assertEquals(12, loss.evaluate(1, -3));
+        assertEquals(12, loss.evaluate(-1, 3));
+        assertEquals(-1, loss.gradient(1, 0.5));
+        assertEquals(0, loss.gradient(1, 2), 0);
+        assertEquals(-4, loss.gradient(1, -3));
+        assertEquals(4, loss.gradient(-1, 3));
+        checkGradient(loss);
+    }
+
+    /**
+     * Test values of the squared error loss and its derivative.
+     */
+    @Test
+    void testSquaredErrorLoss() {
+        LossFunction loss = new SquaredErrorLoss();
+        assertEquals(4, loss.evaluate(1, 3));
+        assertEquals(4, loss.gradient(1, 3));
+        assertEquals(-1, loss.gradient(2.5, 2));
+        checkGradient(loss);
+    }
+}